@@ -0,0 +1,37 @@
+package code4goal.antony.resumeparser;
+
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.creole.ResourceInstantiationException;
+
+/** GATE documents for the benchmarks, created like the service does. */
+final class BenchmarkDocuments {
+
+	private BenchmarkDocuments() {
+	}
+
+	/**
+	 * A lean GATE document for converted XHTML, the service's default. GATE
+	 * must be initialised.
+	 */
+	static Document newDocument(String html)
+			throws ResourceInstantiationException {
+		return newDocument(html, false);
+	}
+
+	/**
+	 * A GATE document for converted XHTML, optionally keeping the original
+	 * content and repositioning info. GATE must be initialised.
+	 */
+	static Document newDocument(String html, boolean preserveOriginalContent)
+			throws ResourceInstantiationException {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("stringContent", html);
+		params.put("mimeType", "text/html");
+		params.put("preserveOriginalContent", preserveOriginalContent);
+		params.put("collectRepositioningInfo", preserveOriginalContent);
+		return (Document) Factory.createResource("gate.corpora.DocumentImpl",
+				params);
+	}
+}
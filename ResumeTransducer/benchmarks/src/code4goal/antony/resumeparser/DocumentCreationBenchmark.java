@@ -0,0 +1,59 @@
+package code4goal.antony.resumeparser;
+
+import gate.Document;
+import gate.Factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating (and deleting) the GATE document for a converted resume, with
+ * and without the original content and repositioning info. Run with
+ * {@code -prof gc} to see the memory each variant allocates per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DocumentCreationBenchmark {
+
+	/** Number of jobs in the resume, i.e. its length */
+	@Param({ "1", "5", "20" })
+	public int jobs;
+
+	/** Whether the document keeps its original content and offsets */
+	@Param({ "false", "true" })
+	public boolean preserveOriginalContent;
+
+	private String html;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		ResumeParserService.initGate();
+		html = SyntheticResumes.toHtml(new SyntheticResumes(42)
+				.generate(jobs));
+	}
+
+	@Benchmark
+	public int create() throws Exception {
+		Document document = BenchmarkDocuments.newDocument(html,
+				preserveOriginalContent);
+		int length = document.getContent().size().intValue();
+		Factory.deleteResource(document);
+		return length;
+	}
+}
@@ -0,0 +1,152 @@
+package code4goal.antony.resumeparser;
+
+import gate.Annotation;
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.LanguageAnalyser;
+import gate.ProcessingResource;
+import gate.creole.SerialController;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One phase of {@code JAPEGrammars/main.jape} on its own. The resume is
+ * run through the ANNIE processing resources and every earlier phase
+ * during setup; each invocation then runs only the selected phase, and
+ * the annotations it added are removed again afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JapePhaseBenchmark {
+
+	/** Name of the processing resource that runs main.jape */
+	private static final String RESUME_TRANSDUCER = "Resume Transducer";
+
+	/** A phase listed in main.jape */
+	@Param({ "ProfileSection", "NameFinder", "EmailFinder", "PhoneFinder",
+			"AddressFinder", "URLFinder", "TitleFinder",
+			"SectionHeadingFinder", "WorkExperienceFinder",
+			"SectionBodyFinderPre", "SectionBodyFinder" })
+	public String phase;
+
+	/** Number of jobs in the resume, i.e. its length */
+	@Param({ "5" })
+	public int jobs;
+
+	private Document document;
+	private LanguageAnalyser transducer;
+	private Set<Integer> preparedAnnotations;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		ResumeParserService.initGate();
+		Annie annie = new Annie();
+		annie.initAnnie();
+		document = BenchmarkDocuments.newDocument(SyntheticResumes
+				.toHtml(new SyntheticResumes(42).generate(jobs)));
+
+		// everything the application runs before the resume grammars
+		SerialController controller = (SerialController) annie
+				.getController();
+		for (ProcessingResource pr : controller.getPRs()) {
+			if (pr.getName().equals(RESUME_TRANSDUCER)) {
+				break;
+			}
+			run((LanguageAnalyser) pr);
+		}
+
+		// the resume grammars up to the one being measured
+		File grammarDir = new File(Annie.getApplicationFile().getParentFile(),
+				"../JAPEGrammars");
+		for (String name : phases(new File(grammarDir, "main.jape"))) {
+			LanguageAnalyser phaseTransducer = newTransducer(new File(
+					grammarDir, name + ".jape"));
+			if (name.equals(phase)) {
+				transducer = phaseTransducer;
+				break;
+			}
+			run(phaseTransducer);
+		}
+		if (transducer == null) {
+			throw new IllegalArgumentException("No phase " + phase
+					+ " in main.jape");
+		}
+
+		preparedAnnotations = new HashSet<Integer>();
+		for (Annotation annotation : document.getAnnotations()) {
+			preparedAnnotations.add(annotation.getId());
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void removePhaseOutput() {
+		List<Annotation> added = new ArrayList<Annotation>();
+		for (Annotation annotation : document.getAnnotations()) {
+			if (!preparedAnnotations.contains(annotation.getId())) {
+				added.add(annotation);
+			}
+		}
+		document.getAnnotations().removeAll(added);
+	}
+
+	@Benchmark
+	public Document runPhase() throws Exception {
+		transducer.execute();
+		return document;
+	}
+
+	private void run(LanguageAnalyser pr) throws Exception {
+		pr.setDocument(document);
+		pr.execute();
+	}
+
+	private LanguageAnalyser newTransducer(File grammar) throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("grammarURL", grammar.toURI().toURL());
+		params.put("encoding", "UTF-8");
+		LanguageAnalyser pr = (LanguageAnalyser) Factory.createResource(
+				"gate.creole.Transducer", params);
+		pr.setDocument(document);
+		return pr;
+	}
+
+	/** The phase names listed after "Phases:" in a multi-phase grammar. */
+	private static List<String> phases(File mainJape) throws Exception {
+		List<String> phases = new ArrayList<String>();
+		boolean inPhases = false;
+		for (String line : FileUtils.readLines(mainJape, "UTF-8")) {
+			line = line.trim();
+			if (inPhases && line.length() > 0) {
+				phases.add(line);
+			} else if (line.startsWith("Phases:")) {
+				inPhases = true;
+			}
+		}
+		return phases;
+	}
+}
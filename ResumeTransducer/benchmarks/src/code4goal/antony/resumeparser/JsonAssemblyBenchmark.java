@@ -0,0 +1,91 @@
+package code4goal.antony.resumeparser;
+
+import gate.Corpus;
+import gate.Document;
+import gate.Factory;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Building the output JSON from a fully annotated resume: as a json-simple
+ * tree, as the tree's string, and streamed to a reused buffer as the batch
+ * sinks do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonAssemblyBenchmark {
+
+	/** Number of jobs in the resume, i.e. its length */
+	@Param({ "1", "5", "20" })
+	public int jobs;
+
+	/** The default output, or a mapping of the contact details alone */
+	@Param({ "default", "contact-only" })
+	public String mapping;
+
+	private OutputMapping outputMapping;
+
+	private Document document;
+
+	private final CharArrayWriter buffer = new CharArrayWriter(64 * 1024);
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		ResumeParserService.initGate();
+		Annie annie = new Annie();
+		annie.initAnnie();
+		outputMapping = mapping.equals("default") ? OutputMapping
+				.defaultMapping() : OutputMapping.load(new File(Annie
+				.getApplicationFile().getParentFile().getParentFile(),
+				"ResumeTransducer/mappings/" + mapping + ".json"));
+		document = BenchmarkDocuments.newDocument(SyntheticResumes
+				.toHtml(new SyntheticResumes(42).generate(jobs)));
+		Corpus corpus = Factory.newCorpus("benchmark corpus");
+		corpus.add(document);
+		annie.setCorpus(corpus);
+		annie.execute();
+	}
+
+	@Benchmark
+	public JSONObject assemble() {
+		return outputMapping.extract(document);
+	}
+
+	@Benchmark
+	public String serialise() {
+		return outputMapping.extract(document).toJSONString();
+	}
+
+	@Benchmark
+	public int stream() throws IOException {
+		buffer.reset();
+		try (JsonGenerator generator = ResumeJson.JSON_FACTORY
+				.createGenerator(buffer)) {
+			outputMapping.write(document, generator);
+		}
+		return buffer.size();
+	}
+}
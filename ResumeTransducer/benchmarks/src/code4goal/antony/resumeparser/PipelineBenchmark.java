@@ -0,0 +1,59 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One converted resume through the whole ANNIE application, from GATE
+ * document creation to the assembled JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PipelineBenchmark {
+
+	/** Number of jobs in the resume, i.e. its length */
+	@Param({ "1", "5", "20" })
+	public int jobs;
+
+	/** Whether documents keep their original content and offsets */
+	@Param({ "false", "true" })
+	public boolean preserveOriginalContent;
+
+	private ResumeParserService service;
+	private ConvertedResume resume;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		service = new ResumeParserService(1);
+		service.setPreserveOriginalContent(preserveOriginalContent);
+		String html = SyntheticResumes.toHtml(new SyntheticResumes(42)
+				.generate(jobs));
+		resume = new ConvertedResume(new File("synthetic.html"), html,
+				"text/html");
+	}
+
+	@Benchmark
+	public Map<File, JSONObject> parse() throws Exception {
+		return service.parseConverted(Collections.singletonList(resume));
+	}
+}
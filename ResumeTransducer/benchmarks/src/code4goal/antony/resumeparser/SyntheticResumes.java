@@ -0,0 +1,173 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Generates plausible English resumes of varying length for the
+ * benchmarks. Output is deterministic for a given seed. The length knob is
+ * the number of jobs in the work experience section; every job adds about
+ * eight lines.
+ */
+public class SyntheticResumes {
+
+	private static final String[] FIRST_NAMES = { "James", "Mary", "Robert",
+			"Patricia", "Michael", "Linda", "David", "Susan", "Daniel", "Karen" };
+	private static final String[] LAST_NAMES = { "Smith", "Johnson",
+			"Williams", "Brown", "Jones", "Miller", "Davis", "Wilson",
+			"Anderson", "Taylor" };
+	private static final String[] TITLES = { "Software Engineer",
+			"Senior Software Engineer", "Project Manager", "Data Analyst",
+			"Product Manager", "Systems Administrator" };
+	private static final String[] ORGANIZATIONS = { "Microsoft", "Oracle",
+			"Acme Corporation", "Initech", "Globex Inc.", "Umbrella Systems" };
+	private static final String[] CITIES = { "Seattle, WA", "Austin, TX",
+			"Boston, MA", "Denver, CO", "Chicago, IL" };
+	private static final String[] MONTHS = { "January", "February", "March",
+			"April", "May", "June", "July", "August", "September", "October",
+			"November", "December" };
+	private static final String[] SKILLS = { "Java", "Python", "SQL",
+			"Linux", "Hadoop", "Spring", "JavaScript", "C++", "Git", "AWS" };
+	private static final String[] DUTIES = {
+			"Designed and implemented a distributed job scheduler.",
+			"Led a team of five engineers delivering quarterly releases.",
+			"Reduced page load latency by forty percent through caching.",
+			"Built reporting dashboards used by the sales organization.",
+			"Migrated legacy services to a message based architecture.",
+			"Mentored new hires and ran the internal code review program." };
+
+	/** Lines per page when a resume is written as PDF */
+	private static final int LINES_PER_PAGE = 50;
+
+	private final Random random;
+
+	public SyntheticResumes(long seed) {
+		random = new Random(seed);
+	}
+
+	/** Generate the lines of one resume with {@code jobs} positions. */
+	public List<String> generate(int jobs) {
+		List<String> lines = new ArrayList<String>();
+		String first = pick(FIRST_NAMES);
+		String last = pick(LAST_NAMES);
+		lines.add(first + " " + last);
+		lines.add(pick(TITLES));
+		lines.add(first.toLowerCase() + "." + last.toLowerCase()
+				+ "@example.com");
+		lines.add("(" + (200 + random.nextInt(700)) + ") 555-"
+				+ (1000 + random.nextInt(9000)));
+		lines.add((100 + random.nextInt(900)) + " Main Street, "
+				+ pick(CITIES) + " " + (10000 + random.nextInt(89999)));
+		lines.add("http://www.linkedin.com/in/" + first.toLowerCase()
+				+ last.toLowerCase());
+		lines.add("");
+		lines.add("SUMMARY");
+		lines.add("Experienced " + pick(TITLES).toLowerCase()
+				+ " with a track record of shipping reliable software.");
+		lines.add("");
+		lines.add("WORK EXPERIENCE");
+		int year = 2016;
+		for (int i = 0; i < jobs; i++) {
+			int startYear = year - 1 - random.nextInt(3);
+			lines.add(pick(TITLES));
+			lines.add(pick(ORGANIZATIONS) + ", " + pick(CITIES));
+			lines.add(pick(MONTHS) + " " + startYear + " - " + pick(MONTHS)
+					+ " " + year);
+			for (int d = 0; d < 3; d++) {
+				lines.add("- " + pick(DUTIES));
+			}
+			lines.add("");
+			year = startYear;
+		}
+		lines.add("EDUCATION");
+		lines.add("Bachelor of Science in Computer Science, University of Texas, "
+				+ (year - 4));
+		lines.add("");
+		lines.add("SKILLS");
+		StringBuilder skills = new StringBuilder();
+		for (int i = 0; i < 6; i++) {
+			skills.append(i == 0 ? "" : ", ").append(pick(SKILLS));
+		}
+		lines.add(skills.toString());
+		return lines;
+	}
+
+	/** The resume as XHTML, one paragraph per line, like Tika produces. */
+	public static String toHtml(List<String> lines) {
+		StringBuilder html = new StringBuilder(
+				"<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title></title></head><body>\n");
+		for (String line : lines) {
+			html.append("<p>").append(StringEscapeUtils.escapeXml(line))
+					.append("</p>\n");
+		}
+		return html.append("</body></html>").toString();
+	}
+
+	/** Write the resume as a PDF with {@value #LINES_PER_PAGE} lines a page. */
+	public static void writePdf(List<String> lines, File file)
+			throws IOException {
+		PDFont font = PDType1Font.HELVETICA;
+		PDDocument pdf = new PDDocument();
+		try {
+			for (int start = 0; start < lines.size(); start += LINES_PER_PAGE) {
+				PDPage page = new PDPage();
+				pdf.addPage(page);
+				PDPageContentStream content = new PDPageContentStream(pdf, page);
+				content.beginText();
+				content.setFont(font, 10);
+				content.moveTextPositionByAmount(50, 740);
+				int end = Math.min(start + LINES_PER_PAGE, lines.size());
+				for (String line : lines.subList(start, end)) {
+					content.drawString(line);
+					content.moveTextPositionByAmount(0, -14);
+				}
+				content.endText();
+				content.close();
+			}
+			pdf.save(file.getPath());
+		} catch (COSVisitorException e) {
+			throw new IOException(e);
+		} finally {
+			pdf.close();
+		}
+	}
+
+	private String pick(String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Write a corpus of PDF resumes for batch runs.
+	 * <P>
+	 * USAGE: SyntheticResumes &lt;outputdir&gt; &lt;count&gt; [maxjobs]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err
+					.println("USAGE: SyntheticResumes <outputdir> <count> [maxjobs]");
+			return;
+		}
+		File dir = new File(args[0]);
+		int count = Integer.parseInt(args[1]);
+		int maxJobs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create " + dir);
+		}
+		SyntheticResumes generator = new SyntheticResumes(42);
+		for (int i = 0; i < count; i++) {
+			List<String> lines = generator.generate(1 + i % maxJobs);
+			writePdf(lines, new File(dir, String.format("resume-%05d.pdf", i)));
+		}
+	}
+}
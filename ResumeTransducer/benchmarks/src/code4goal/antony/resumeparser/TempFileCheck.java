@@ -0,0 +1,58 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+
+/**
+ * Checks that {@link TikaWorker}s leave no temporary files behind. Tika
+ * spools a resume to disk to split a PDF into page ranges, so synthetic
+ * multi-page PDFs are converted by one worker with one page per range, in
+ * both XHTML and text-only mode; the check fails (exit status 1) if the
+ * pool had to clean up after the worker.
+ * <P>
+ * USAGE: TempFileCheck &lt;count&gt;
+ */
+public class TempFileCheck {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("USAGE: TempFileCheck <count>");
+			return;
+		}
+		int count = Integer.parseInt(args[0]);
+		File dir = File.createTempFile("tempfilecheck", "");
+		dir.delete();
+		dir.mkdirs();
+		SyntheticResumes generator = new SyntheticResumes(42);
+		File[] inputs = new File[count];
+		for (int i = 0; i < count; i++) {
+			inputs[i] = new File(dir, String.format("resume-%05d.pdf", i));
+			// enough jobs for several pages
+			SyntheticResumes.writePdf(generator.generate(40 + i % 10),
+					inputs[i]);
+		}
+
+		TikaConverter converter = new TikaConverter(new MetricsRegistry());
+		converter.setPageRangeSize(1);
+		TikaWorkerPool pool = new TikaWorkerPool(converter, 1, "512m");
+		try {
+			for (int mode = 0; mode < 2; mode++) {
+				converter.setTextOnly(mode == 1);
+				for (File input : inputs) {
+					pool.convert(input, 0);
+				}
+			}
+		} finally {
+			pool.close();
+			for (File input : inputs) {
+				input.delete();
+			}
+			dir.delete();
+		}
+		int leftover = pool.getLeftoverTempFiles();
+		System.out.println(2 * count + " conversions, " + leftover
+				+ " temporary files left behind");
+		if (leftover > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Accuracy and latency of {@link TikaConverter#setTextOnly(boolean)
+ * text-only} conversion against XHTML. Every resume is parsed in both
+ * modes; the report gives the mean Tika and GATE time per resume in each
+ * mode, how many resumes fail, how many fields of the synthetic resumes
+ * each mode gets right, and how often the two modes produce the same
+ * JSON.
+ * <P>
+ * USAGE: TextOnlyComparison &lt;count&gt; [resume...], where count
+ * synthetic PDF resumes are generated and any other resumes (e.g. real
+ * ones, which only count towards agreement) are added.
+ */
+public class TextOnlyComparison {
+
+	/** Fields checked against what the synthetic resumes contain */
+	private static final String[] FIELDS = { "name", "title", "email",
+			"phone", "jobs" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err
+					.println("USAGE: TextOnlyComparison <count> [resume...]");
+			return;
+		}
+		int count = Integer.parseInt(args[0]);
+		File dir = File.createTempFile("textonly", "");
+		dir.delete();
+		dir.mkdirs();
+		List<File> inputs = new ArrayList<File>();
+		List<List<String>> truths = new ArrayList<List<String>>();
+		List<Integer> jobs = new ArrayList<Integer>();
+		SyntheticResumes generator = new SyntheticResumes(42);
+		for (int i = 0; i < count; i++) {
+			List<String> lines = generator.generate(1 + i % 10);
+			File pdf = new File(dir, String.format("resume-%05d.pdf", i));
+			SyntheticResumes.writePdf(lines, pdf);
+			inputs.add(pdf);
+			truths.add(lines);
+			jobs.add(1 + i % 10);
+		}
+		for (int i = 1; i < args.length; i++) {
+			inputs.add(new File(args[i]));
+		}
+
+		ResumeParserService service = new ResumeParserService(1);
+		JSONObject[][] results = new JSONObject[2][];
+		for (int mode = 0; mode < 2; mode++) {
+			service.setTextOnly(mode == 1);
+			// warm up the JIT for this mode before timing it
+			for (int i = 0; i < Math.min(5, inputs.size()); i++) {
+				parse(service, inputs.get(i), null);
+			}
+			long[] nanos = new long[2];
+			int failures = 0;
+			results[mode] = new JSONObject[inputs.size()];
+			for (int i = 0; i < inputs.size(); i++) {
+				results[mode][i] = parse(service, inputs.get(i), nanos);
+				if (results[mode][i] == null) {
+					failures++;
+				}
+			}
+			int[] correct = new int[FIELDS.length];
+			for (int i = 0; i < truths.size(); i++) {
+				boolean[] right = check(results[mode][i], truths.get(i),
+						jobs.get(i));
+				for (int f = 0; f < FIELDS.length; f++) {
+					correct[f] += right[f] ? 1 : 0;
+				}
+			}
+			StringBuilder report = new StringBuilder(mode == 0 ? "xhtml    "
+					: "text-only");
+			report.append(String.format(
+					"  tika %.1f ms  gate %.1f ms  failed %d/%d", nanos[0] / 1e6
+							/ inputs.size(), nanos[1] / 1e6 / inputs.size(),
+					failures, inputs.size()));
+			for (int f = 0; f < FIELDS.length; f++) {
+				report.append(String.format("  %s %d/%d", FIELDS[f],
+						correct[f], truths.size()));
+			}
+			System.out.println(report);
+		}
+
+		int same = 0;
+		for (int i = 0; i < inputs.size(); i++) {
+			if (results[0][i] != null && results[0][i].equals(results[1][i])) {
+				same++;
+			}
+		}
+		System.out.println("identical JSON in both modes: " + same + "/"
+				+ inputs.size());
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+		System.exit(0);
+	}
+
+	/**
+	 * Parse a resume, adding the Tika and GATE times to {@code nanos}.
+	 *
+	 * @return the result, or null if parsing failed
+	 */
+	private static JSONObject parse(ResumeParserService service, File input,
+			long[] nanos) {
+		long start = System.nanoTime();
+		long tikaEnd = start;
+		try {
+			ConvertedResume converted = service.convert(input);
+			tikaEnd = System.nanoTime();
+			return service.parseConverted(
+					Collections.singletonList(converted)).get(input);
+		} catch (Exception e) {
+			return null;
+		} finally {
+			if (nanos != null) {
+				nanos[0] += tikaEnd - start;
+				nanos[1] += System.nanoTime() - tikaEnd;
+			}
+		}
+	}
+
+	/** Which of {@link #FIELDS} the parser got right */
+	private static boolean[] check(JSONObject json, List<String> lines,
+			int jobs) {
+		if (json == null) {
+			return new boolean[FIELDS.length];
+		}
+		JSONObject basics = json.get("basics") instanceof JSONObject ? (JSONObject) json
+				.get("basics") : new JSONObject();
+		JSONObject name = basics.get("name") instanceof JSONObject ? (JSONObject) basics
+				.get("name") : new JSONObject();
+		String[] fullName = lines.get(0).split(" ");
+		int found = 0;
+		if (json.get("work_experience") instanceof JSONArray) {
+			for (Object job : (JSONArray) json.get("work_experience")) {
+				if (((JSONObject) job).containsKey("jobtitle")) {
+					found++;
+				}
+			}
+		}
+		return new boolean[] {
+				fullName[0].equals(name.get("firstName"))
+						&& fullName[1].equals(name.get("surname")),
+				lines.get(1).equals(basics.get("title")),
+				contains(basics.get("email"), lines.get(2)),
+				contains(basics.get("phone"), lines.get(3)),
+				found == jobs };
+	}
+
+	private static boolean contains(Object values, String value) {
+		return values instanceof JSONArray
+				&& ((JSONArray) values).contains(value);
+	}
+}
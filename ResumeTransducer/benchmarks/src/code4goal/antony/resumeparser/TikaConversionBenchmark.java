@@ -0,0 +1,71 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tika conversion of a synthetic PDF resume, to XHTML or plain text, in
+ * full or cut short after its first page, in one go or split into pages
+ * extracted in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TikaConversionBenchmark {
+
+	/** Number of jobs in the resume, i.e. its length */
+	@Param({ "1", "5", "20" })
+	public int jobs;
+
+	/** Whether the resume is converted to plain text rather than XHTML */
+	@Param({ "false", "true" })
+	public boolean textOnly;
+
+	/** Pages extracted, -1 for all */
+	@Param({ "-1", "1" })
+	public int maxPages;
+
+	/** Pages per range of a split PDF, -1 not to split */
+	@Param({ "-1", "1" })
+	public int pageRangeSize;
+
+	private File pdf;
+	private TikaConverter converter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		pdf = File.createTempFile("resume", ".pdf");
+		SyntheticResumes.writePdf(new SyntheticResumes(42).generate(jobs), pdf);
+		converter = new TikaConverter(new MetricsRegistry());
+		converter.setTextOnly(textOnly);
+		converter.setMaxPages(maxPages);
+		converter.setPageRangeSize(pageRangeSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pdf.delete();
+	}
+
+	@Benchmark
+	public ConvertedResume convertPdf() throws Exception {
+		return converter.convert(pdf);
+	}
+}
@@ -32,16 +32,37 @@ public class Annie  {
     Out.prln("Initialising processing engine...");
 
     // load the ANNIE application from the saved state in plugins/ANNIE
-    File gateHome = Gate.getGateHome();
     //File anniePlugin = new File(pluginsHome, "ANNIE");
     //TODO: Change to relative path
     //File annieGapp = new File(anniePlugin, "C:\\Users\\antonydeepak\\Documents\\workspace\\Programming_Workspace\\project_workspace\\ResumeParser\\ResumeParser_git\\ResumeParser\\GATEFiles\\ANNIEResumeParser.gapp");
-    File annieGapp = new File(gateHome, "ANNIEResumeParser.gapp");
+    File annieGapp = getApplicationFile();
     annieController = (CorpusController) PersistenceManager.loadObjectFromFile(annieGapp);
 
     Out.prln("...processing engine loaded");
   } // initAnnie()
 
+  /** The saved resume parser application, in the GATE home directory */
+  public static File getApplicationFile() {
+    return new File(Gate.getGateHome(), "ANNIEResumeParser.gapp");
+  } // getApplicationFile()
+
+  /**
+   * Create an independent copy of this ANNIE system. The copy has its own
+   * controller and processing resources (large read-only data such as
+   * gazetteer lists is shared where GATE supports it), so the two can be
+   * run from different threads at the same time.
+   */
+  public Annie duplicate() throws ResourceInstantiationException {
+    Annie copy = new Annie();
+    copy.annieController = (CorpusController) Factory.duplicate(annieController);
+    return copy;
+  } // duplicate()
+
+  /** The controller itself, for callers that need to drive its PRs */
+  CorpusController getController() {
+    return annieController;
+  } // getController()
+
   /** Tell ANNIE's controller about the corpus you want to run on */
   public void setCorpus(Corpus corpus) {
     annieController.setCorpus(corpus);
@@ -50,8 +71,38 @@ public class Annie  {
   /** Run ANNIE */
   public void execute() throws GateException {
     Out.prln("Running processing engine...");
+    if (annieController instanceof SerialController) {
+      ((SerialController) annieController).resetPrTimeMap();
+    }
     annieController.execute();
     Out.prln("...processing engine complete");
   } // execute()
+
+  /**
+   * Ask a running {@link #execute()} to stop. GATE checks the flag between
+   * documents and inside long-running processing resources such as the
+   * JAPE transducers, and ends the run with an
+   * {@link ExecutionInterruptedException}.
+   */
+  public void interrupt() {
+    annieController.interrupt();
+  } // interrupt()
+
+  /** Release the controller and its processing resources */
+  public void delete() {
+    Factory.deleteResource(annieController);
+  } // delete()
+
+  /**
+   * Milliseconds spent in each processing resource, keyed by its name,
+   * during the last call to {@link #execute()}.
+   */
+  public Map<String, Long> getPrTimes() {
+    if (annieController instanceof SerialController) {
+      return new HashMap<String, Long>(
+          ((SerialController) annieController).getPrTimeMap());
+    }
+    return Collections.emptyMap();
+  } // getPrTimes()
 } // class Annie
  
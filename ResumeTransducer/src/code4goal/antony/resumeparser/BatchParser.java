@@ -0,0 +1,488 @@
+package code4goal.antony.resumeparser;
+
+import gate.Document;
+import gate.util.Out;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Parses many resumes in one JVM as a three-stage pipeline, so slow
+ * conversions overlap with the CPU-bound GATE runs instead of idling the
+ * cores:
+ * <OL>
+ * <LI>converter threads run Apache Tika over the inputs (on an
+ * {@link IoExecutors I/O executor});</LI>
+ * <LI>one annotator thread per controller of the
+ * {@link ResumeParserService} groups converted resumes into corpora and
+ * runs them through the application;</LI>
+ * <LI>assembler threads build the JSON and hand it to the
+ * {@link OutputSink}.</LI>
+ * </OL>
+ * Each stage hands over to the next through a bounded queue, so a slow
+ * stage holds up the ones before it and memory stays bounded however
+ * large the batch is. GATE documents are deleted as soon as their JSON is
+ * written, and the service's cap on live documents holds up the
+ * annotators if the assemblers fall behind.
+ * <P>
+ * With the service's result cache on, byte-identical inputs are parsed
+ * once: copies that come along while the first is on its way are written
+ * from its result, and count as cache hits.
+ */
+public class BatchParser {
+
+	/** Marks the end of a queue; whoever takes it puts it back for the next */
+	private static final Item END_OF_ITEMS = new Item(null);
+	private static final Corpus END_OF_CORPORA = new Corpus(
+			Collections.<Item> emptyList());
+
+	private final ResumeParserService service;
+	private final int converterThreads;
+	private final int assemblerThreads;
+	private final int maxInFlight;
+	private final int corpusSize;
+
+	/** Resumes on their way through the pipeline, by cache key */
+	private final ConcurrentMap<String, Item> inFlight = new ConcurrentHashMap<String, Item>();
+
+	/**
+	 * @param service
+	 *            parser to use; it gets one annotator thread per pooled
+	 *            controller
+	 * @param converterThreads
+	 *            number of resumes converted at the same time
+	 * @param assemblerThreads
+	 *            number of threads assembling and writing results
+	 * @param maxInFlight
+	 *            maximum number of documents waiting between two stages
+	 * @param corpusSize
+	 *            number of documents run through a controller in one
+	 *            execution
+	 */
+	public BatchParser(ResumeParserService service, int converterThreads,
+			int assemblerThreads, int maxInFlight, int corpusSize) {
+		if (converterThreads < 1 || assemblerThreads < 1 || maxInFlight < 1
+				|| corpusSize < 1) {
+			throw new IllegalArgumentException(
+					"thread counts, maxInFlight and corpusSize must be positive");
+		}
+		if (corpusSize > service.getMaxLiveDocuments()) {
+			throw new IllegalArgumentException("corpusSize " + corpusSize
+					+ " is larger than the cap on live documents");
+		}
+		this.service = service;
+		this.converterThreads = converterThreads;
+		this.assemblerThreads = assemblerThreads;
+		this.maxInFlight = Math.max(maxInFlight, corpusSize);
+		this.corpusSize = corpusSize;
+	}
+
+	/**
+	 * Expand the batch input: every regular file of a directory (sorted by
+	 * name), or every non-blank, non-comment line of a manifest file.
+	 */
+	public static List<File> listInputs(File input) throws IOException {
+		List<File> files = new ArrayList<File>();
+		if (input.isDirectory()) {
+			File[] children = input.listFiles();
+			if (children == null) {
+				throw new IOException("Cannot list directory " + input);
+			}
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.isFile() && !child.isHidden()) {
+					files.add(child);
+				}
+			}
+		} else {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(input), "UTF-8"))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0 && !line.startsWith("#")) {
+						files.add(new File(line));
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Parse all inputs and write the results to {@code sink}. The sink is
+	 * left open.
+	 *
+	 * @return the number of resumes that failed to parse
+	 */
+	public int run(List<File> inputs, OutputSink sink)
+			throws InterruptedException {
+		int annotatorThreads = service.getPool().size();
+		Out.prln("Parsing " + inputs.size() + " resumes with "
+				+ converterThreads + " converters, " + annotatorThreads
+				+ " processing engines and " + assemblerThreads
+				+ " assemblers...");
+		BlockingQueue<Item> converted = new ArrayBlockingQueue<Item>(
+				maxInFlight);
+		BlockingQueue<Corpus> annotated = new ArrayBlockingQueue<Corpus>(
+				Math.max(1, maxInFlight / corpusSize));
+		AtomicInteger failures = new AtomicInteger();
+
+		ExecutorService converters = IoExecutors.newIoExecutor("convert");
+		ExecutorService annotators = Executors
+				.newFixedThreadPool(annotatorThreads);
+		ExecutorService assemblers = Executors
+				.newFixedThreadPool(assemblerThreads);
+		try {
+			AtomicInteger next = new AtomicInteger();
+			AtomicInteger convertersLeft = new AtomicInteger(converterThreads);
+			for (int i = 0; i < converterThreads; i++) {
+				converters.execute(new ConvertStage(inputs, next, converted,
+						convertersLeft, sink, failures));
+			}
+			AtomicInteger annotatorsLeft = new AtomicInteger(annotatorThreads);
+			for (int i = 0; i < annotatorThreads; i++) {
+				annotators.execute(new AnnotateStage(converted, annotated,
+						annotatorsLeft, sink, failures));
+			}
+			for (int i = 0; i < assemblerThreads; i++) {
+				assemblers.execute(new AssembleStage(annotated, sink, failures));
+			}
+		} finally {
+			// each stage ends once the one before it has drained
+			for (ExecutorService stage : Arrays.asList(converters, annotators,
+					assemblers)) {
+				stage.shutdown();
+				stage.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			}
+		}
+		Out.prln("..." + (inputs.size() - failures.get()) + " of "
+				+ inputs.size() + " resumes parsed");
+		return failures.get();
+	}
+
+	/** A resume on its way through the pipeline */
+	private static class Item {
+		final File input;
+		String cacheKey;
+		ConvertedResume resume;
+		/** Inputs with the same bytes, to get the same result */
+		private final List<File> copies = new ArrayList<File>();
+		private boolean finished;
+
+		Item(File input) {
+			this.input = input;
+		}
+
+		/** @return false if it is too late: the result has been written */
+		synchronized boolean addCopy(File copy) {
+			if (finished) {
+				return false;
+			}
+			copies.add(copy);
+			return true;
+		}
+
+		synchronized List<File> finish() {
+			finished = true;
+			return copies;
+		}
+	}
+
+	/**
+	 * Make a resume the one to be parsed for its cache key, unless a
+	 * byte-identical one is already on its way, which then takes it along.
+	 *
+	 * @return whether the resume is to be parsed
+	 */
+	private boolean lead(Item item, ResultCache cache) {
+		while (true) {
+			Item leader = inFlight.putIfAbsent(item.cacheKey, item);
+			if (leader == null) {
+				return true;
+			}
+			if (leader.addCopy(item.input)) {
+				cache.countHit();
+				return false;
+			}
+			// the leader just finished and left: its result is cached now,
+			// unless it failed
+		}
+	}
+
+	/**
+	 * Write the result of a resume for the copies that waited for it, once
+	 * its own result is written.
+	 *
+	 * @param json
+	 *            the result, or null if the resume failed
+	 */
+	private void finish(Item item, String json, OutputSink sink,
+			AtomicInteger failures) {
+		if (item.cacheKey == null) {
+			return;
+		}
+		inFlight.remove(item.cacheKey, item);
+		for (File copy : item.finish()) {
+			if (json == null) {
+				failures.incrementAndGet();
+				System.err.println("Failed to parse " + copy
+						+ ": same as the failed " + item.input);
+				continue;
+			}
+			try {
+				sink.write(copy, ResumeJson.raw(json));
+			} catch (Exception e) {
+				failures.incrementAndGet();
+				System.err.println("Failed to write " + copy + ": " + e);
+			}
+		}
+	}
+
+	/** Resumes that went through a controller together */
+	private static class Corpus {
+		final List<Item> items;
+		List<Document> documents;
+
+		Corpus(List<Item> items) {
+			this.items = items;
+		}
+	}
+
+	/**
+	 * Stage one: converts inputs until there are none left. Cached results
+	 * skip the rest of the pipeline.
+	 */
+	private class ConvertStage implements Runnable {
+		private final List<File> inputs;
+		private final AtomicInteger next;
+		private final BlockingQueue<Item> out;
+		private final AtomicInteger convertersLeft;
+		private final OutputSink sink;
+		private final AtomicInteger failures;
+
+		ConvertStage(List<File> inputs, AtomicInteger next,
+				BlockingQueue<Item> out, AtomicInteger convertersLeft,
+				OutputSink sink, AtomicInteger failures) {
+			this.inputs = inputs;
+			this.next = next;
+			this.out = out;
+			this.convertersLeft = convertersLeft;
+			this.sink = sink;
+			this.failures = failures;
+		}
+
+		@Override
+		public void run() {
+			try {
+				ResultCache cache = service.getResultCache();
+				int i;
+				while ((i = next.getAndIncrement()) < inputs.size()) {
+					Item item = new Item(inputs.get(i));
+					String cached = null;
+					try {
+						if (cache != null) {
+							item.cacheKey = cache.keyFor(item.input);
+							if (!lead(item, cache)) {
+								continue;
+							}
+							cached = cache.get(item.cacheKey);
+							if (cached != null) {
+								sink.write(item.input, ResumeJson.raw(cached));
+								finish(item, cached, sink, failures);
+								continue;
+							}
+						}
+						item.resume = service.convert(item.input);
+					} catch (Exception e) {
+						System.err.println("Failed to "
+								+ (cached == null ? "convert " : "write ")
+								+ item.input + ": " + e);
+					}
+					if (item.resume == null) {
+						failures.incrementAndGet();
+						finish(item, cached, sink, failures);
+					} else {
+						out.put(item);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (convertersLeft.decrementAndGet() == 0) {
+					putQuietly(out, END_OF_ITEMS);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stage two: gathers up to {@code corpusSize} converted resumes at a
+	 * time and runs them through a controller.
+	 */
+	private class AnnotateStage implements Runnable {
+		private final BlockingQueue<Item> in;
+		private final BlockingQueue<Corpus> out;
+		private final AtomicInteger annotatorsLeft;
+		private final OutputSink sink;
+		private final AtomicInteger failures;
+
+		AnnotateStage(BlockingQueue<Item> in, BlockingQueue<Corpus> out,
+				AtomicInteger annotatorsLeft, OutputSink sink,
+				AtomicInteger failures) {
+			this.in = in;
+			this.out = out;
+			this.annotatorsLeft = annotatorsLeft;
+			this.sink = sink;
+			this.failures = failures;
+		}
+
+		@Override
+		public void run() {
+			try {
+				boolean done = false;
+				while (!done) {
+					List<Item> items = new ArrayList<Item>();
+					// wait for the first resume, then take whatever else is
+					// ready rather than hold the controller idle
+					Item item = in.take();
+					while (item != null && items.size() < corpusSize) {
+						if (item == END_OF_ITEMS) {
+							in.put(item);
+							done = true;
+							break;
+						}
+						items.add(item);
+						item = items.size() < corpusSize ? in.poll() : null;
+					}
+					if (!items.isEmpty()) {
+						annotate(new Corpus(items));
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (annotatorsLeft.decrementAndGet() == 0) {
+					putQuietly(out, END_OF_CORPORA);
+				}
+			}
+		}
+
+		private void annotate(Corpus corpus) throws InterruptedException {
+			List<ConvertedResume> resumes = new ArrayList<ConvertedResume>();
+			for (Item item : corpus.items) {
+				resumes.add(item.resume);
+			}
+			try {
+				corpus.documents = service.annotate(resumes);
+			} catch (Exception e) {
+				if (e instanceof DocumentTimeoutException
+						&& corpus.items.size() > 1) {
+					// one straggler times out the whole corpus: parse the
+					// resumes one by one, so only it fails and is quarantined
+					System.err.println("Parsing " + chunkNames(corpus)
+							+ " timed out; retrying them one at a time");
+					for (Item item : corpus.items) {
+						annotate(new Corpus(Collections.singletonList(item)));
+					}
+					return;
+				}
+				failures.addAndGet(resumes.size());
+				System.err.println("Failed to parse " + chunkNames(corpus)
+						+ ": " + e);
+				for (Item item : corpus.items) {
+					finish(item, null, sink, failures);
+				}
+				return;
+			}
+			out.put(corpus);
+		}
+	}
+
+	/** Stage three: builds the JSON for annotated corpora and writes it. */
+	private class AssembleStage implements Runnable {
+		private final BlockingQueue<Corpus> in;
+		private final OutputSink sink;
+		private final AtomicInteger failures;
+
+		AssembleStage(BlockingQueue<Corpus> in, OutputSink sink,
+				AtomicInteger failures) {
+			this.in = in;
+			this.sink = sink;
+			this.failures = failures;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Corpus corpus;
+				while ((corpus = in.take()) != END_OF_CORPORA) {
+					try {
+						assemble(corpus);
+					} finally {
+						service.release(corpus.documents);
+					}
+				}
+				in.put(corpus);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void assemble(Corpus corpus) {
+			for (int i = 0; i < corpus.items.size(); i++) {
+				Item item = corpus.items.get(i);
+				String json = null;
+				try {
+					// generated straight into the sink, unless it has to be
+					// kept for the cache (and any copies) as well
+					ResumeJson resume = service.json(corpus.documents.get(i));
+					ResultCache cache = service.getResultCache();
+					if (cache != null && item.cacheKey != null) {
+						json = resume.toJSONString();
+						cache.put(item.cacheKey, json);
+						resume = ResumeJson.raw(json);
+					}
+					sink.write(item.input, resume);
+				} catch (Exception e) {
+					failures.incrementAndGet();
+					System.err.println("Failed to write " + item.input + ": "
+							+ e);
+				}
+				finish(item, json, sink, failures);
+			}
+		}
+	}
+
+	private static <T> void putQuietly(BlockingQueue<T> queue, T marker) {
+		try {
+			queue.put(marker);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String chunkNames(Corpus corpus) {
+		List<File> sources = new ArrayList<File>();
+		for (Item item : corpus.items) {
+			sources.add(item.input);
+		}
+		return sources.toString();
+	}
+}
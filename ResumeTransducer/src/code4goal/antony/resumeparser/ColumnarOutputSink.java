@@ -0,0 +1,326 @@
+package code4goal.antony.resumeparser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Writes results to a single columnar file, so that analytics can scan a
+ * few fields of many resumes without parsing every JSON document. Resumes
+ * are grouped into row groups of {@code rowGroupSize}; within a group
+ * every column is stored contiguously, and each group lists its own
+ * columns, so a reader can seek straight to the ones it wants (see
+ * {@link ColumnarReader}).
+ * <P>
+ * Every result is flattened into columns named by dotted JSON paths:
+ * <UL>
+ * <LI>{@code file} and every string outside an array, e.g.
+ * {@code basics.name.firstName}, are {@link #STRING} columns (null where a
+ * resume has none);
+ * <LI>arrays of strings, e.g. {@code basics.email}, are
+ * {@link #STRING_LIST} columns;
+ * <LI>arrays of objects, e.g. {@code work_experience}, become three
+ * parallel list columns {@code <path>.element} ({@link #INT_LIST}, the
+ * index of the object in the array), {@code <path>.key} and
+ * {@code <path>.value}, with one entry per key of every object. Section
+ * headings, which are keys, stay queryable that way.
+ * </UL>
+ * The layout is
+ *
+ * <PRE>
+ * file         := MAGIC rowGroup* footer
+ * rowGroup     := int rowCount, int columnCount, columnHeader*, chunk*
+ * columnHeader := string name, byte type, int chunkLength
+ * footer       := int rowGroupCount, long rowGroupOffset*, long footerOffset, MAGIC
+ * </PRE>
+ *
+ * where {@code MAGIC} is the bytes {@code RCOL1}, numbers are big-endian
+ * and a string is its UTF-8 length as an int followed by the bytes. A
+ * {@link #STRING} chunk holds a string per row, with length -1 for null;
+ * a list chunk holds per row an int count followed by the values (strings,
+ * or ints for {@link #INT_LIST}).
+ */
+public class ColumnarOutputSink implements OutputSink {
+
+	static final byte[] MAGIC = "RCOL1".getBytes(Charset.forName("US-ASCII"));
+
+	/** Column types */
+	static final byte STRING = 0;
+	static final byte STRING_LIST = 1;
+	static final byte INT_LIST = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final DataOutputStream out;
+	private final int rowGroupSize;
+	/** Bytes written so far */
+	private long offset;
+	private final List<Long> rowGroupOffsets = new ArrayList<Long>();
+
+	/** Columns of the current row group, in the order they appeared */
+	private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+	private int rows;
+
+	/** JSON buffer of each writing thread */
+	private final ThreadLocal<CharArrayWriter> buffers = new ThreadLocal<CharArrayWriter>() {
+		@Override
+		protected CharArrayWriter initialValue() {
+			return new CharArrayWriter(64 * 1024);
+		}
+	};
+
+	/**
+	 * @param file
+	 *            the file to (over)write
+	 * @param rowGroupSize
+	 *            number of resumes per row group; a group is kept in memory
+	 *            until it is full
+	 */
+	public ColumnarOutputSink(File file, int rowGroupSize) throws IOException {
+		if (rowGroupSize < 1) {
+			throw new IllegalArgumentException(
+					"rowGroupSize must be positive: " + rowGroupSize);
+		}
+		this.rowGroupSize = rowGroupSize;
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 64 * 1024));
+		out.write(MAGIC);
+		offset = MAGIC.length;
+	}
+
+	@Override
+	public void write(File input, ResumeJson resume) throws IOException {
+		// flatten outside the lock, only appending the row is serialised
+		CharArrayWriter buffer = buffers.get();
+		buffer.reset();
+		try (JsonGenerator generator = ResumeJson.JSON_FACTORY
+				.createGenerator(buffer)) {
+			resume.writeTo(generator);
+		}
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("file", input.getPath());
+		try (JsonParser parser = ResumeJson.JSON_FACTORY
+				.createParser(new CharArrayReader(buffer.toCharArray()))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Result for " + input
+						+ " is not a JSON object");
+			}
+			flattenObject(parser, "", row);
+		}
+		synchronized (this) {
+			append(row);
+			if (rows == rowGroupSize) {
+				flushRowGroup();
+			}
+		}
+	}
+
+	/** Columns of an object outside any array; the parser is on its start */
+	private static void flattenObject(JsonParser parser, String prefix,
+			Map<String, Object> row) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String path = prefix + parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				flattenObject(parser, path + ".", row);
+			} else if (token == JsonToken.START_ARRAY) {
+				flattenArray(parser, path, row);
+			} else if (token != JsonToken.VALUE_NULL) {
+				row.put(path, parser.getText());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void flattenArray(JsonParser parser, String path,
+			Map<String, Object> row) throws IOException {
+		int element = 0;
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token == JsonToken.START_OBJECT) {
+				flattenElement(parser, path, element, "", row);
+			} else if (token == JsonToken.START_ARRAY) {
+				// nested arrays are not produced by any mapping; keep their
+				// strings in order
+				flattenArray(parser, path, row);
+			} else if (token != JsonToken.VALUE_NULL) {
+				list(row, path, STRING_LIST).add(parser.getText());
+			}
+			element++;
+		}
+	}
+
+	/** Key/value entries of an object in an array */
+	private static void flattenElement(JsonParser parser, String path,
+			int element, String keyPrefix, Map<String, Object> row)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = keyPrefix + parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				flattenElement(parser, path, element, key + ".", row);
+			} else if (token == JsonToken.START_ARRAY) {
+				while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+					if (token.isStructStart()) {
+						parser.skipChildren();
+					} else if (token != JsonToken.VALUE_NULL) {
+						addEntry(row, path, element, key, parser.getText());
+					}
+				}
+			} else if (token != JsonToken.VALUE_NULL) {
+				addEntry(row, path, element, key, parser.getText());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addEntry(Map<String, Object> row, String path,
+			int element, String key, String value) {
+		list(row, path + ".element", INT_LIST).add(element);
+		list(row, path + ".key", STRING_LIST).add(key);
+		list(row, path + ".value", STRING_LIST).add(value);
+	}
+
+	/** The list a row holds for a column, created on first use */
+	@SuppressWarnings("rawtypes")
+	private static List list(Map<String, Object> row, String column,
+			byte type) {
+		List list = (List) row.get(column);
+		if (list == null) {
+			list = type == INT_LIST ? new IntList() : new ArrayList<String>();
+			row.put(column, list);
+		}
+		return list;
+	}
+
+	/** Marks list values that go into an {@link #INT_LIST} column */
+	@SuppressWarnings("serial")
+	private static class IntList extends ArrayList<Integer> {
+	}
+
+	private void append(Map<String, Object> row) throws IOException {
+		// check every column before adding any, so a bad row leaves none
+		for (Map.Entry<String, Object> entry : row.entrySet()) {
+			Column column = columns.get(entry.getKey());
+			if (column != null && column.type != typeOf(entry.getValue())) {
+				throw new IOException("Column " + entry.getKey()
+						+ " changes type within a row group");
+			}
+		}
+		for (Map.Entry<String, Object> entry : row.entrySet()) {
+			Column column = columns.get(entry.getKey());
+			if (column == null) {
+				column = new Column(typeOf(entry.getValue()));
+				columns.put(entry.getKey(), column);
+			}
+			column.fillTo(rows);
+			column.add(entry.getValue());
+		}
+		rows++;
+	}
+
+	private static byte typeOf(Object value) {
+		return value instanceof IntList ? INT_LIST
+				: value instanceof List ? STRING_LIST : STRING;
+	}
+
+	private void flushRowGroup() throws IOException {
+		if (rows == 0) {
+			return;
+		}
+		rowGroupOffsets.add(offset);
+		out.writeInt(rows);
+		out.writeInt(columns.size());
+		offset += 8;
+		for (Map.Entry<String, Column> entry : columns.entrySet()) {
+			Column column = entry.getValue();
+			column.fillTo(rows);
+			offset += writeString(out, entry.getKey());
+			out.writeByte(column.type);
+			out.writeInt(column.bytes.size());
+			offset += 5;
+		}
+		for (Column column : columns.values()) {
+			column.bytes.writeTo(out);
+			offset += column.bytes.size();
+		}
+		columns.clear();
+		rows = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flushRowGroup();
+			long footerOffset = offset;
+			out.writeInt(rowGroupOffsets.size());
+			for (long rowGroupOffset : rowGroupOffsets) {
+				out.writeLong(rowGroupOffset);
+			}
+			out.writeLong(footerOffset);
+			out.write(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	/** @return the number of bytes written */
+	private static int writeString(DataOutputStream out, String s)
+			throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		return 4 + bytes.length;
+	}
+
+	/** One column of the current row group, encoded as rows are added */
+	private static class Column {
+		final byte type;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(bytes);
+		int rows;
+
+		Column(byte type) {
+			this.type = type;
+		}
+
+		/** Add nulls or empty lists for rows that did not have the column */
+		void fillTo(int row) throws IOException {
+			while (rows < row) {
+				data.writeInt(type == STRING ? -1 : 0);
+				rows++;
+			}
+		}
+
+		void add(Object value) throws IOException {
+			if (type == STRING) {
+				writeString(data, (String) value);
+			} else {
+				List<?> values = (List<?>) value;
+				data.writeInt(values.size());
+				for (Object v : values) {
+					if (type == INT_LIST) {
+						data.writeInt((Integer) v);
+					} else {
+						writeString(data, (String) v);
+					}
+				}
+			}
+			rows++;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package code4goal.antony.resumeparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+
+/**
+ * Reads columns back from a file written by {@link ColumnarOutputSink},
+ * touching only the bytes of the columns asked for.
+ */
+public class ColumnarReader implements Closeable {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final RandomAccessFile file;
+	private final long[] rowGroupOffsets;
+
+	public ColumnarReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			byte[] magic = new byte[ColumnarOutputSink.MAGIC.length];
+			long end = this.file.length() - magic.length;
+			this.file.seek(end);
+			this.file.readFully(magic);
+			if (end < 8 || !Arrays.equals(magic, ColumnarOutputSink.MAGIC)) {
+				throw new IOException(file + " is not a complete columnar file");
+			}
+			this.file.seek(end - 8);
+			this.file.seek(this.file.readLong());
+			rowGroupOffsets = new long[this.file.readInt()];
+			for (int i = 0; i < rowGroupOffsets.length; i++) {
+				rowGroupOffsets[i] = this.file.readLong();
+			}
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	public int getRowGroupCount() {
+		return rowGroupOffsets.length;
+	}
+
+	/** Number of resumes in a row group */
+	public int getRowCount(int rowGroup) throws IOException {
+		file.seek(rowGroupOffsets[rowGroup]);
+		return file.readInt();
+	}
+
+	/** Names of the columns a row group has, in the order they are stored */
+	public List<String> getColumns(int rowGroup) throws IOException {
+		return new ArrayList<String>(readHeader(rowGroup).keySet());
+	}
+
+	/**
+	 * The values of a column for every row of a group: strings (or null)
+	 * for a {@code STRING} column, otherwise lists of strings or integers.
+	 *
+	 * @return the values, or null if the group does not have the column
+	 */
+	public List<Object> read(int rowGroup, String column) throws IOException {
+		Map<String, long[]> header = readHeader(rowGroup);
+		long[] chunk = header.get(column);
+		if (chunk == null) {
+			return null;
+		}
+		int rows = getRowCount(rowGroup);
+		byte[] bytes = new byte[(int) chunk[2]];
+		file.seek(chunk[1]);
+		file.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				bytes));
+		byte type = (byte) chunk[0];
+		List<Object> values = new ArrayList<Object>(rows);
+		for (int i = 0; i < rows; i++) {
+			if (type == ColumnarOutputSink.STRING) {
+				values.add(readString(in));
+			} else {
+				int count = in.readInt();
+				List<Object> list = new ArrayList<Object>(count);
+				for (int j = 0; j < count; j++) {
+					list.add(type == ColumnarOutputSink.INT_LIST ? (Object) in
+							.readInt() : readString(in));
+				}
+				values.add(list);
+			}
+		}
+		return values;
+	}
+
+	/** Column name to {type, chunk offset, chunk length} */
+	private Map<String, long[]> readHeader(int rowGroup) throws IOException {
+		file.seek(rowGroupOffsets[rowGroup]);
+		file.readInt();
+		int columnCount = file.readInt();
+		Map<String, long[]> header = new LinkedHashMap<String, long[]>();
+		List<long[]> chunks = new ArrayList<long[]>();
+		for (int i = 0; i < columnCount; i++) {
+			byte[] name = new byte[file.readInt()];
+			file.readFully(name);
+			long[] chunk = new long[] { file.readByte(), 0, file.readInt() };
+			header.put(new String(name, UTF8), chunk);
+			chunks.add(chunk);
+		}
+		long offset = file.getFilePointer();
+		for (long[] chunk : chunks) {
+			chunk[1] = offset;
+			offset += chunk[2];
+		}
+		return header;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Print the given columns of every resume as tab-separated values, lists
+	 * as JSON arrays; without columns, list the columns of each row group.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err
+					.println("USAGE: java ColumnarReader <file.rcol> [column...]");
+			return;
+		}
+		try (ColumnarReader reader = new ColumnarReader(new File(args[0]))) {
+			for (int g = 0; g < reader.getRowGroupCount(); g++) {
+				if (args.length == 1) {
+					System.out.println("row group " + g + ": "
+							+ reader.getRowCount(g) + " rows, columns "
+							+ reader.getColumns(g));
+					continue;
+				}
+				List<List<Object>> columns = new ArrayList<List<Object>>();
+				for (int c = 1; c < args.length; c++) {
+					columns.add(reader.read(g, args[c]));
+				}
+				int rows = reader.getRowCount(g);
+				for (int row = 0; row < rows; row++) {
+					StringBuilder line = new StringBuilder();
+					for (int c = 0; c < columns.size(); c++) {
+						if (c > 0) {
+							line.append('\t');
+						}
+						List<Object> column = columns.get(c);
+						Object value = column == null ? null : column.get(row);
+						if (value instanceof List) {
+							line.append(JSONArray.toJSONString((List<?>) value));
+						} else if (value != null) {
+							appendEscaped(line, (String) value);
+						}
+					}
+					System.out.println(line);
+				}
+			}
+		}
+	}
+
+	/** Append a TSV field, escaping only tabs, line breaks and backslashes */
+	private static void appendEscaped(StringBuilder line, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+			case '\t':
+				line.append("\\t");
+				break;
+			case '\n':
+				line.append("\\n");
+				break;
+			case '\r':
+				line.append("\\r");
+				break;
+			case '\\':
+				line.append("\\\\");
+				break;
+			default:
+				line.append(ch);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package code4goal.antony.resumeparser;
+
+import gate.creole.ResourceInstantiationException;
+import gate.util.Out;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of independent ANNIE systems. GATE controllers are not thread-safe,
+ * so every worker thread checks out its own copy, runs one document (or
+ * corpus) through it and checks it back in.
+ * <P>
+ * All copies are deep-duplicated from the loaded application up front,
+ * while nothing is running through it.
+ */
+public class ControllerPool {
+
+	/** Copies that are loaded and not checked out */
+	private final BlockingQueue<Annie> idle;
+
+	/** Number of copies in the pool */
+	private final int size;
+
+	/**
+	 * @param annie
+	 *            a loaded ANNIE system; it becomes the first pooled copy
+	 * @param size
+	 *            number of copies, usually the number of cores
+	 */
+	public ControllerPool(Annie annie, int size)
+			throws ResourceInstantiationException {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: "
+					+ size);
+		}
+		this.size = size;
+		idle = new ArrayBlockingQueue<Annie>(size);
+		idle.add(annie);
+		if (size > 1) {
+			Out.prln("Duplicating processing engine " + (size - 1)
+					+ " times...");
+			for (int i = 1; i < size; i++) {
+				idle.add(annie.duplicate());
+			}
+			Out.prln("..." + size + " processing engines ready");
+		}
+	}
+
+	/** Number of cores available to this JVM, the default pool size */
+	public static int defaultSize() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Take an ANNIE system out of the pool, waiting for one if all are busy. */
+	public Annie checkOut() throws InterruptedException {
+		return idle.take();
+	}
+
+	/** Return a copy obtained from {@link #checkOut()} to the pool. */
+	public void checkIn(Annie annie) {
+		idle.add(annie);
+	}
+
+	/**
+	 * Return a copy obtained from {@link #checkOut()} whose run was
+	 * interrupted: it is replaced with a fresh duplicate, so no state left
+	 * behind by the abandoned run leaks into later documents. If the
+	 * duplicate cannot be made the old copy goes back into the pool, as
+	 * GATE resets the interrupted flag at the start of every run.
+	 */
+	public void recycle(Annie annie) {
+		Annie fresh;
+		try {
+			fresh = annie.duplicate();
+		} catch (ResourceInstantiationException e) {
+			System.err.println("Could not replace an interrupted processing engine: "
+					+ e);
+			idle.add(annie);
+			return;
+		}
+		annie.delete();
+		idle.add(fresh);
+	}
+}
@@ -0,0 +1,62 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A resume after Apache Tika has converted it to XHTML or plain text, held
+ * in memory so it can be handed straight to GATE.
+ */
+public class ConvertedResume {
+
+	private final File source;
+	private final String content;
+	private final String mimeType;
+	private final List<Long> pageOffsets;
+
+	/**
+	 * @param source
+	 *            the original resume file
+	 * @param content
+	 *            the converted text
+	 * @param mimeType
+	 *            {@code text/html} or {@code text/plain}; tells GATE how to
+	 *            unpack the content
+	 */
+	public ConvertedResume(File source, String content, String mimeType) {
+		this(source, content, mimeType, null);
+	}
+
+	/**
+	 * @param pageOffsets
+	 *            where each page starts in plain text content, or null
+	 */
+	public ConvertedResume(File source, String content, String mimeType,
+			List<Long> pageOffsets) {
+		this.source = source;
+		this.content = content;
+		this.mimeType = mimeType;
+		this.pageOffsets = pageOffsets;
+	}
+
+	public File getSource() {
+		return source;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * Where each page of a PDF converted to plain text starts in the
+	 * content, or null if unknown, e.g. for XHTML, which marks the pages
+	 * itself.
+	 */
+	public List<Long> getPageOffsets() {
+		return pageOffsets;
+	}
+}
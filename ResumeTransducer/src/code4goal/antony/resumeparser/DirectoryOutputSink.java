@@ -0,0 +1,100 @@
+package code4goal.antony.resumeparser;
+
+import gate.util.Out;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes every resume to its own {@code <basename>.json} file in an output
+ * directory. Inputs whose base names clash, such as {@code a.pdf} and
+ * {@code a.docx} or {@code x/cv.pdf} and {@code y/cv.pdf}, get
+ * {@code <basename>-2.json}, {@code <basename>-3.json} and so on instead
+ * of overwriting each other's results; names are handed out in input
+ * order where the inputs are known up front, else in the order the
+ * results come in.
+ */
+public class DirectoryOutputSink implements OutputSink {
+
+	private final File directory;
+
+	/** Output file names by input */
+	private final Map<File, String> names = new HashMap<File, String>();
+
+	/** Names handed out, in lower case for case-insensitive file systems */
+	private final Set<String> taken = new HashSet<String>();
+
+	public DirectoryOutputSink(File directory) throws IOException {
+		this(directory, Collections.<File> emptyList());
+	}
+
+	/**
+	 * @param inputs
+	 *            the resumes to be written, so clashing names are resolved
+	 *            in this order
+	 */
+	public DirectoryOutputSink(File directory, List<File> inputs)
+			throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create output directory "
+					+ directory);
+		}
+		this.directory = directory;
+		for (File input : inputs) {
+			nameFor(input);
+		}
+	}
+
+	private synchronized String nameFor(File input) {
+		String name = names.get(input);
+		if (name == null) {
+			String base = FilenameUtils.getBaseName(input.getName());
+			name = base + ".json";
+			if (!taken.add(name.toLowerCase(Locale.ROOT))) {
+				int n = 2;
+				do {
+					name = base + "-" + n++ + ".json";
+				} while (!taken.add(name.toLowerCase(Locale.ROOT)));
+				Out.prln("Writing the result for " + input + " to " + name
+						+ ", as " + base + ".json is taken");
+			}
+			names.put(input, name);
+		}
+		return name;
+	}
+
+	@Override
+	public void write(File input, ResumeJson resume) throws IOException {
+		File jsonFile = new File(directory, nameFor(input));
+		boolean written = false;
+		try (JsonGenerator generator = ResumeJson.JSON_FACTORY
+				.createGenerator(new FileOutputStream(jsonFile),
+						JsonEncoding.UTF8)) {
+			resume.writeTo(generator);
+			written = true;
+		} finally {
+			if (!written) {
+				// leave no half-written results behind
+				jsonFile.delete();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		// every file is closed as soon as it is written
+	}
+}
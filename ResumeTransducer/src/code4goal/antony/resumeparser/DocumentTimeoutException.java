@@ -0,0 +1,20 @@
+package code4goal.antony.resumeparser;
+
+import gate.util.GateException;
+
+/**
+ * Thrown when a resume takes longer than the per-document time budget in
+ * Apache Tika or in the GATE application. A resume that timed out on its
+ * own, in Tika or as a corpus of one, has been added to the service's
+ * {@link Quarantine}; when a corpus of several resumes times out, none has,
+ * since any one of them may have held up the rest: retry them one at a time
+ * to find it.
+ */
+public class DocumentTimeoutException extends GateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DocumentTimeoutException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,95 @@
+package code4goal.antony.resumeparser;
+
+/**
+ * Latency histogram with logarithmic buckets: every power of two is split
+ * into eight sub-buckets, so recorded values are kept to within 12.5% over
+ * the full range of a long while using a fixed, small amount of memory.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1)
+			* SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/** Record one value; negative values are counted as zero. */
+	public synchronized void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[bucketFor(value)]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getSum() {
+		return sum;
+	}
+
+	public synchronized long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	public synchronized long getMax() {
+		return max;
+	}
+
+	public synchronized double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * The value below which the given fraction of recorded values fall,
+	 * rounded up to its bucket boundary.
+	 *
+	 * @param quantile
+	 *            between 0 and 1, e.g. 0.99 for the 99th percentile
+	 */
+	public synchronized long getPercentile(double quantile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(quantile * count);
+		if (rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.max(min, Math.min(max, upperBound(i)));
+			}
+		}
+		return max;
+	}
+
+	static int bucketFor(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,73 @@
+package code4goal.antony.resumeparser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for work that mostly waits: reading uploads, Tika conversion
+ * and waiting for a processing engine. On Java 21 and later every task
+ * gets its own virtual thread, so thousands of queued resumes cost no OS
+ * thread each; older runtimes fall back to a cached pool of daemon
+ * threads. CPU-bound GATE runs are limited separately, see
+ * {@link ResumeParserService}.
+ */
+public class IoExecutors {
+
+	/** {@code Executors.newVirtualThreadPerTaskExecutor()}, if present */
+	private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+	private IoExecutors() {
+	}
+
+	private static Method findVirtualExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/** Whether this runtime has virtual threads. */
+	public static boolean virtualThreadsAvailable() {
+		return VIRTUAL_EXECUTOR != null;
+	}
+
+	/**
+	 * A new unbounded executor that starts every task straight away; callers
+	 * bound how many tasks they submit.
+	 *
+	 * @param name
+	 *            prefix for the names of platform threads
+	 */
+	public static ExecutorService newIoExecutor(String name) {
+		if (VIRTUAL_EXECUTOR != null) {
+			try {
+				return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+			} catch (Exception e) {
+				// fall through to platform threads
+			}
+		}
+		return Executors.newCachedThreadPool(daemonThreadFactory(name));
+	}
+
+	/**
+	 * Platform daemon threads called {@code <name>-<n>}, so threads stuck in
+	 * abandoned work never keep the JVM alive.
+	 */
+	public static ThreadFactory daemonThreadFactory(final String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, name + "-"
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
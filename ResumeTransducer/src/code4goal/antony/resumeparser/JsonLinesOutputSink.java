@@ -0,0 +1,151 @@
+package code4goal.antony.resumeparser;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Streams results to a single JSON Lines file, one
+ * {@code {"file":..., "resume":...}} object per line, as documents finish.
+ * Each line is generated into a buffer its thread reuses and then appended
+ * whole, so lines never interleave and a result that fails half-way leaves
+ * nothing behind; beyond those buffers only a fixed-size one is held in
+ * memory. Every {@code syncIntervalMillis}, if anything was written since,
+ * the buffer is flushed and the file forced to disk by a background task,
+ * so a result is durable within about that time even while the batch waits
+ * for slow documents, and downstream loaders can consume a batch while it
+ * is still running. Output may optionally be gzip-compressed; every sync
+ * then ends a complete deflate block, so what has been synced can be
+ * decompressed.
+ */
+public class JsonLinesOutputSink implements OutputSink {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Syncs the streams of all sinks */
+	private static final ScheduledExecutorService SYNCER = new ScheduledThreadPoolExecutor(
+			1, IoExecutors.daemonThreadFactory("jsonl-sync"));
+
+	private final FileOutputStream fileStream;
+	private final GZIPOutputStream gzipStream;
+	private final Writer writer;
+	private final ScheduledFuture<?> syncTask;
+	/** Whether lines were written since the last sync */
+	private boolean unsynced;
+	/** A failed background sync, reported by the next write or close */
+	private IOException syncFailure;
+
+	/** Line buffer of each writing thread */
+	private final ThreadLocal<CharArrayWriter> lines = new ThreadLocal<CharArrayWriter>() {
+		@Override
+		protected CharArrayWriter initialValue() {
+			return new CharArrayWriter(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * @param file
+	 *            the file to (over)write
+	 * @param gzip
+	 *            whether to gzip-compress the stream
+	 * @param syncIntervalMillis
+	 *            how often buffered lines are flushed and synced to disk; 0
+	 *            syncs after every line
+	 */
+	public JsonLinesOutputSink(File file, boolean gzip, long syncIntervalMillis)
+			throws IOException {
+		this.fileStream = new FileOutputStream(file);
+		OutputStream out = fileStream;
+		if (gzip) {
+			gzipStream = new GZIPOutputStream(out, BUFFER_SIZE, true);
+			out = gzipStream;
+		} else {
+			gzipStream = null;
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"),
+				BUFFER_SIZE);
+		if (syncIntervalMillis > 0) {
+			syncTask = SYNCER.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (JsonLinesOutputSink.this) {
+						if (unsynced && syncFailure == null) {
+							try {
+								sync();
+							} catch (IOException e) {
+								syncFailure = e;
+							}
+						}
+					}
+				}
+			}, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			syncTask = null;
+		}
+	}
+
+	@Override
+	public void write(File input, ResumeJson resume) throws IOException {
+		CharArrayWriter line = lines.get();
+		line.reset();
+		try (JsonGenerator generator = ResumeJson.JSON_FACTORY
+				.createGenerator(line)) {
+			generator.writeStartObject();
+			generator.writeStringField("file", input.getPath());
+			generator.writeFieldName("resume");
+			resume.writeTo(generator);
+			generator.writeEndObject();
+		}
+		synchronized (this) {
+			checkSyncFailure();
+			line.writeTo(writer);
+			writer.write('\n');
+			unsynced = true;
+			if (syncTask == null) {
+				sync();
+			}
+		}
+	}
+
+	private void sync() throws IOException {
+		writer.flush();
+		fileStream.getChannel().force(false);
+		unsynced = false;
+	}
+
+	private void checkSyncFailure() throws IOException {
+		if (syncFailure != null) {
+			throw new IOException("Could not sync the output",
+					syncFailure);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (syncTask != null) {
+			syncTask.cancel(false);
+		}
+		try {
+			checkSyncFailure();
+			writer.flush();
+			if (gzipStream != null) {
+				gzipStream.finish();
+			}
+			fileStream.getChannel().force(false);
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package code4goal.antony.resumeparser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Named latency histograms for the stages of the parsing pipeline. All
+ * values are recorded in nanoseconds and reported in milliseconds.
+ */
+public class MetricsRegistry {
+
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	/** The histogram with the given name, created on first use. */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	/** Record the time elapsed since {@code startNanos}. */
+	public void recordSince(String name, long startNanos) {
+		histogram(name).record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Summary of every histogram as
+	 * {@code {"<name>": {"count":..., "mean_ms":..., "p50_ms":..., ...}}}.
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONObject toJSON() {
+		JSONObject summary = new JSONObject();
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram h = entry.getValue();
+			JSONObject stage = new JSONObject();
+			stage.put("count", h.getCount());
+			stage.put("mean_ms", millis(h.getMean()));
+			stage.put("p50_ms", millis(h.getPercentile(0.50)));
+			stage.put("p90_ms", millis(h.getPercentile(0.90)));
+			stage.put("p99_ms", millis(h.getPercentile(0.99)));
+			stage.put("max_ms", millis(h.getMax()));
+			summary.put(entry.getKey(), stage);
+		}
+		return summary;
+	}
+
+	private static double millis(double nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+}
@@ -0,0 +1,597 @@
+package code4goal.antony.resumeparser;
+
+import gate.Annotation;
+import gate.Document;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContainerFactory;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Declarative mapping from annotations to the output JSON, loaded once and
+ * compiled into a plan of fields. A mapping file looks like
+ *
+ * <PRE>
+ * {"fields": [
+ *   {"type": "TitleFinder", "path": "basics.title", "select": "first", "value": "text"},
+ *   {"type": "EmailFinder", "path": "basics.email", "value": "text"},
+ *   {"type": "skills", "path": "skills", "value": {"feature:sectionHeading": "text"}}
+ * ]}
+ * </PRE>
+ *
+ * Each field takes the annotations of one {@code type} and puts their
+ * values at a dotted {@code path}: the value of the first annotation for
+ * {@code "select": "first"}, otherwise an array with one value per
+ * annotation. A {@code value} is {@code "text"} (the text the annotation
+ * covers), {@code "feature:<name>"}, or an object of such values whose keys
+ * may themselves be {@code "feature:<name>"}. Several fields may share a
+ * path if they share the type; each annotation then takes the value of the
+ * first one whose {@code "when": {"feature": ..., "equals": ...}} matches.
+ * <P>
+ * Blank strings, empty objects and empty arrays are left out. Only the
+ * types a mapping mentions are looked at, so a mapping for contact details
+ * alone never builds the section subtrees.
+ * <P>
+ * A mapping either streams the JSON to a generator ({@link #json(Document)})
+ * with keys in the order they are declared, or builds it as a json-simple
+ * tree ({@link #extract(Document)}) for callers that want to work with it.
+ */
+public class OutputMapping {
+
+	private static final String DEFAULT_RESOURCE = "default-mapping.json";
+
+	private static OutputMapping defaultMapping;
+
+	/** Fields in the order they are first declared */
+	private final List<Field> fields;
+
+	/** The same fields arranged by path, for streaming */
+	private final Node root = new Node(null, null);
+
+	/** Every annotation type a field reads */
+	private final Set<String> types;
+
+	private final String fingerprint;
+
+	private OutputMapping(List<Field> fields, String fingerprint) {
+		this.fields = fields;
+		this.fingerprint = fingerprint;
+		Set<String> types = new HashSet<String>();
+		for (Field field : fields) {
+			types.add(field.type);
+			Node parent = root;
+			for (int i = 0; i < field.path.length - 1; i++) {
+				Node child = parent.children.get(field.path[i]);
+				if (child == null) {
+					child = new Node(field.path[i], null);
+					parent.children.put(child.name, child);
+				}
+				parent = child;
+			}
+			String name = field.path[field.path.length - 1];
+			parent.children.put(name, new Node(name, field));
+		}
+		this.types = Collections.unmodifiableSet(types);
+	}
+
+	/** The mapping that produces the parser's standard output. */
+	public static synchronized OutputMapping defaultMapping() {
+		if (defaultMapping == null) {
+			InputStream in = OutputMapping.class
+					.getResourceAsStream(DEFAULT_RESOURCE);
+			if (in == null) {
+				throw new IllegalStateException(DEFAULT_RESOURCE
+						+ " is missing from the classpath");
+			}
+			try {
+				defaultMapping = load(in, DEFAULT_RESOURCE);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot load "
+						+ DEFAULT_RESOURCE, e);
+			}
+		}
+		return defaultMapping;
+	}
+
+	/** Load and compile a mapping file. */
+	public static OutputMapping load(File file) throws IOException {
+		return load(new FileInputStream(file), file.getPath());
+	}
+
+	private static OutputMapping load(InputStream in, String name)
+			throws IOException {
+		String json;
+		try (Reader reader = new InputStreamReader(in, "UTF-8")) {
+			json = IOUtils.toString(reader);
+		}
+		Object root;
+		try {
+			// keep objects in file order, it is the order of the output
+			root = new JSONParser().parse(json, new ContainerFactory() {
+				@Override
+				public Map<?, ?> createObjectContainer() {
+					return new LinkedHashMap<Object, Object>();
+				}
+
+				@Override
+				public List<?> creatArrayContainer() {
+					return new ArrayList<Object>();
+				}
+			});
+		} catch (ParseException e) {
+			throw new IOException(name + ": " + e, e);
+		}
+		try {
+			return new OutputMapping(compile(root), sha256(json));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(name + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Hash of the mapping's source, so cached results built with another
+	 * mapping are not reused.
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/** Annotation types the mapping reads */
+	public Set<String> getTypes() {
+		return types;
+	}
+
+	/**
+	 * The output JSON for a document the pipeline has annotated, generated
+	 * when it is written. The document must not be deleted before that.
+	 */
+	public ResumeJson json(final Document doc) {
+		return new ResumeJson() {
+			@Override
+			public void writeTo(JsonGenerator generator) throws IOException {
+				write(doc, generator);
+			}
+		};
+	}
+
+	/** Stream the output JSON for a document to a generator. */
+	public void write(Document doc, JsonGenerator generator)
+			throws IOException {
+		ResumeExtractor annotations = new ResumeExtractor(doc, types);
+		Out out = new Out(generator);
+		generator.writeStartObject();
+		for (Node child : root.children.values()) {
+			child.write(annotations, out);
+		}
+		generator.writeEndObject();
+	}
+
+	/** The output JSON for a document the pipeline has annotated. */
+	@SuppressWarnings("unchecked")
+	public JSONObject extract(Document doc) {
+		ResumeExtractor annotations = new ResumeExtractor(doc, types);
+		JSONObject result = new JSONObject();
+		for (Field field : fields) {
+			Object value;
+			if (field.first) {
+				Annotation annotation = annotations.first(field.type);
+				value = annotation == null ? null : field.valueFor(annotation,
+						annotations);
+			} else {
+				JSONArray values = new JSONArray();
+				for (Annotation annotation : annotations.get(field.type)) {
+					Object v = field.valueFor(annotation, annotations);
+					if (v != null) {
+						values.add(v);
+					}
+				}
+				value = values.isEmpty() ? null : values;
+			}
+			if (value != null) {
+				JSONObject parent = result;
+				for (int i = 0; i < field.path.length - 1; i++) {
+					JSONObject child = (JSONObject) parent.get(field.path[i]);
+					if (child == null) {
+						child = new JSONObject();
+						parent.put(field.path[i], child);
+					}
+					parent = child;
+				}
+				parent.put(field.path[field.path.length - 1], value);
+			}
+		}
+		return result;
+	}
+
+	/** Where the annotations of one type go */
+	private static class Field {
+		final String type;
+		final String[] path;
+		final boolean first;
+		final List<Alternative> alternatives = new ArrayList<Alternative>();
+
+		Field(String type, String[] path, boolean first) {
+			this.type = type;
+			this.path = path;
+			this.first = first;
+		}
+
+		/** How to map an annotation, or null to leave it out */
+		Value valueSpecFor(Annotation annotation) {
+			for (Alternative alternative : alternatives) {
+				if (alternative.matches(annotation)) {
+					return alternative.value;
+				}
+			}
+			return null;
+		}
+
+		Object valueFor(Annotation annotation, ResumeExtractor annotations) {
+			Value value = valueSpecFor(annotation);
+			return value == null ? null : value.valueFor(annotation,
+					annotations);
+		}
+
+		void write(String name, ResumeExtractor annotations, Out out)
+				throws IOException {
+			if (first) {
+				Annotation annotation = annotations.first(type);
+				Value value = annotation == null ? null
+						: valueSpecFor(annotation);
+				if (value != null) {
+					value.write(name, annotation, annotations, out);
+				}
+			} else {
+				out.start(name, true);
+				for (Annotation annotation : annotations.get(type)) {
+					Value value = valueSpecFor(annotation);
+					if (value != null) {
+						value.write(null, annotation, annotations, out);
+					}
+				}
+				out.end();
+			}
+		}
+	}
+
+	/** An object in the output, or a field at its leaf */
+	private static class Node {
+		final String name;
+		final Field field;
+		final Map<String, Node> children = new LinkedHashMap<String, Node>();
+
+		Node(String name, Field field) {
+			this.name = name;
+			this.field = field;
+		}
+
+		void write(ResumeExtractor annotations, Out out) throws IOException {
+			if (field != null) {
+				field.write(name, annotations, out);
+			} else {
+				out.start(name, false);
+				for (Node child : children.values()) {
+					child.write(annotations, out);
+				}
+				out.end();
+			}
+		}
+	}
+
+	/**
+	 * A generator that only writes an object or array once something goes
+	 * into it, so empty ones are left out without building them first.
+	 */
+	private static class Out {
+		final JsonGenerator generator;
+		/** Field name of each open container, null inside an array */
+		final List<String> names = new ArrayList<String>();
+		final List<Boolean> arrays = new ArrayList<Boolean>();
+		/** How many of the open containers have been written */
+		int written;
+
+		Out(JsonGenerator generator) {
+			this.generator = generator;
+		}
+
+		void start(String name, boolean array) {
+			names.add(name);
+			arrays.add(array);
+		}
+
+		void end() throws IOException {
+			int last = names.size() - 1;
+			if (written > last) {
+				if (arrays.get(last)) {
+					generator.writeEndArray();
+				} else {
+					generator.writeEndObject();
+				}
+				written = last;
+			}
+			names.remove(last);
+			arrays.remove(last);
+		}
+
+		void string(String name, String value) throws IOException {
+			for (; written < names.size(); written++) {
+				if (names.get(written) != null) {
+					generator.writeFieldName(names.get(written));
+				}
+				if (arrays.get(written)) {
+					generator.writeStartArray();
+				} else {
+					generator.writeStartObject();
+				}
+			}
+			if (name != null) {
+				generator.writeFieldName(name);
+			}
+			generator.writeString(value);
+		}
+	}
+
+	/** One way of mapping an annotation, possibly conditional */
+	private static class Alternative {
+		final String whenFeature;
+		final String whenEquals;
+		final Value value;
+
+		Alternative(String whenFeature, String whenEquals, Value value) {
+			this.whenFeature = whenFeature;
+			this.whenEquals = whenEquals;
+			this.value = value;
+		}
+
+		boolean matches(Annotation annotation) {
+			return whenFeature == null
+					|| whenEquals.equals(annotation.getFeatures().get(
+							whenFeature));
+		}
+	}
+
+	/** A compiled value spec */
+	private interface Value {
+		/** @return the value, or null to leave it out */
+		Object valueFor(Annotation annotation, ResumeExtractor annotations);
+
+		/**
+		 * Stream the value, if there is one.
+		 *
+		 * @param name
+		 *            its field name, or null in an array
+		 */
+		void write(String name, Annotation annotation,
+				ResumeExtractor annotations, Out out) throws IOException;
+	}
+
+	/** A value that is a single string */
+	private abstract static class StringValue implements Value {
+		@Override
+		public void write(String name, Annotation annotation,
+				ResumeExtractor annotations, Out out) throws IOException {
+			Object value = valueFor(annotation, annotations);
+			if (value != null) {
+				out.string(name, (String) value);
+			}
+		}
+	}
+
+	private static class TextValue extends StringValue {
+		@Override
+		public Object valueFor(Annotation annotation,
+				ResumeExtractor annotations) {
+			String text = annotations.text(annotation);
+			return StringUtils.isBlank(text) ? null : text;
+		}
+	}
+
+	private static class FeatureValue extends StringValue {
+		final String feature;
+
+		FeatureValue(String feature) {
+			this.feature = feature;
+		}
+
+		@Override
+		public Object valueFor(Annotation annotation,
+				ResumeExtractor annotations) {
+			Object value = annotation.getFeatures().get(feature);
+			return value == null || StringUtils.isBlank(value.toString()) ? null
+					: value.toString();
+		}
+	}
+
+	private static class ObjectValue implements Value {
+		/** Output keys: a constant, or the feature holding the key */
+		final List<StringValue> keys = new ArrayList<StringValue>();
+		final List<StringValue> values = new ArrayList<StringValue>();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object valueFor(Annotation annotation,
+				ResumeExtractor annotations) {
+			JSONObject object = new JSONObject();
+			for (int i = 0; i < keys.size(); i++) {
+				Object key = keys.get(i).valueFor(annotation, annotations);
+				if (key != null) {
+					Object value = values.get(i).valueFor(annotation,
+							annotations);
+					if (value != null) {
+						object.put(key, value);
+					}
+				}
+			}
+			return object.isEmpty() ? null : object;
+		}
+
+		@Override
+		public void write(String name, Annotation annotation,
+				ResumeExtractor annotations, Out out) throws IOException {
+			out.start(name, false);
+			for (int i = 0; i < keys.size(); i++) {
+				Object key = keys.get(i).valueFor(annotation, annotations);
+				if (key != null) {
+					Object value = values.get(i).valueFor(annotation,
+							annotations);
+					if (value != null) {
+						out.string((String) key, (String) value);
+					}
+				}
+			}
+			out.end();
+		}
+	}
+
+	private static class ConstantValue extends StringValue {
+		final String value;
+
+		ConstantValue(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object valueFor(Annotation annotation,
+				ResumeExtractor annotations) {
+			return value;
+		}
+	}
+
+	private static List<Field> compile(Object root) {
+		if (!(root instanceof Map)
+				|| !(((Map<?, ?>) root).get("fields") instanceof List)) {
+			throw new IllegalArgumentException(
+					"expected an object with a \"fields\" array");
+		}
+		Map<String, Field> byPath = new LinkedHashMap<String, Field>();
+		List<?> specs = (List<?>) ((Map<?, ?>) root).get("fields");
+		for (int i = 0; i < specs.size(); i++) {
+			if (!(specs.get(i) instanceof Map)) {
+				throw new IllegalArgumentException("field " + i
+						+ " is not an object");
+			}
+			Map<?, ?> spec = (Map<?, ?>) specs.get(i);
+			String type = string(spec, "type", i);
+			String path = string(spec, "path", i);
+			Object select = spec.get("select");
+			if (select != null && !select.equals("first")
+					&& !select.equals("all")) {
+				throw new IllegalArgumentException("field " + i
+						+ ": select must be \"first\" or \"all\"");
+			}
+			boolean first = "first".equals(select);
+			String whenFeature = null;
+			String whenEquals = null;
+			if (spec.get("when") != null) {
+				if (!(spec.get("when") instanceof Map)) {
+					throw new IllegalArgumentException("field " + i
+							+ ": when must be an object");
+				}
+				Map<?, ?> when = (Map<?, ?>) spec.get("when");
+				whenFeature = string(when, "feature", i);
+				whenEquals = string(when, "equals", i);
+			}
+
+			Field field = byPath.get(path);
+			if (field == null) {
+				for (String other : byPath.keySet()) {
+					if (other.startsWith(path + ".")
+							|| path.startsWith(other + ".")) {
+						throw new IllegalArgumentException("field " + i
+								+ ": path " + path + " overlaps " + other);
+					}
+				}
+				field = new Field(type, path.split("\\."), first);
+				byPath.put(path, field);
+			} else if (!field.type.equals(type) || field.first != first) {
+				throw new IllegalArgumentException("field " + i + ": path "
+						+ path + " is already mapped from another type or"
+						+ " selection");
+			}
+			field.alternatives.add(new Alternative(whenFeature, whenEquals,
+					value(spec.get("value"), i)));
+		}
+		return new ArrayList<Field>(byPath.values());
+	}
+
+	private static Value value(Object spec, int field) {
+		if (spec instanceof String) {
+			return stringValue((String) spec, field);
+		} else if (spec instanceof Map) {
+			ObjectValue object = new ObjectValue();
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) spec).entrySet()) {
+				String key = (String) e.getKey();
+				object.keys.add(key.startsWith("feature:") ? stringValue(key,
+						field) : new ConstantValue(key));
+				if (!(e.getValue() instanceof String)) {
+					throw new IllegalArgumentException("field " + field
+							+ ": nested values must be \"text\" or"
+							+ " \"feature:<name>\"");
+				}
+				object.values.add(stringValue((String) e.getValue(), field));
+			}
+			return object;
+		}
+		throw new IllegalArgumentException("field " + field
+				+ ": value must be a string or an object");
+	}
+
+	private static StringValue stringValue(String spec, int field) {
+		if (spec.equals("text")) {
+			return new TextValue();
+		} else if (spec.startsWith("feature:") && spec.length() > 8) {
+			return new FeatureValue(spec.substring(8));
+		}
+		throw new IllegalArgumentException("field " + field + ": \"" + spec
+				+ "\" is neither \"text\" nor \"feature:<name>\"");
+	}
+
+	private static String string(Map<?, ?> spec, String key, int field) {
+		Object value = spec.get(key);
+		if (!(value instanceof String) || ((String) value).length() == 0) {
+			throw new IllegalArgumentException("field " + field + ": missing "
+					+ key);
+		}
+		return (String) value;
+	}
+
+	private static String sha256(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+					text.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
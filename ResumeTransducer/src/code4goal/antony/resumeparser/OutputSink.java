@@ -0,0 +1,22 @@
+package code4goal.antony.resumeparser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Destination for parsed resumes. Results are handed over one at a time as
+ * documents finish, possibly from several worker threads at once.
+ */
+public interface OutputSink extends Closeable {
+
+	/**
+	 * Write the parsed result for one resume.
+	 *
+	 * @param input
+	 *            the original resume file
+	 * @param resume
+	 *            what the parser extracted from it
+	 */
+	void write(File input, ResumeJson resume) throws IOException;
+}
@@ -0,0 +1,89 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Resumes that ran out of time, with how far they got, so they can be
+ * looked at (or retried with a bigger budget) after the run.
+ */
+public class Quarantine {
+
+	/** One timed out resume */
+	public static class Entry {
+		private final File input;
+		private final String stage;
+		private final long elapsedMillis;
+		private final Map<String, Long> timings;
+
+		Entry(File input, String stage, long elapsedMillis,
+				Map<String, Long> timings) {
+			this.input = input;
+			this.stage = stage;
+			this.elapsedMillis = elapsedMillis;
+			this.timings = timings;
+		}
+
+		public File getInput() {
+			return input;
+		}
+
+		/** {@code tika} or {@code annie} */
+		public String getStage() {
+			return stage;
+		}
+
+		/** Time spent in the stage before it was given up on */
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		/**
+		 * Milliseconds spent in each processing resource that finished
+		 * before the run was interrupted; empty for Tika timeouts.
+		 */
+		public Map<String, Long> getTimings() {
+			return timings;
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	public synchronized void add(File input, String stage,
+			long elapsedMillis, Map<String, Long> timings) {
+		entries.add(new Entry(input, stage, elapsedMillis,
+				new LinkedHashMap<String, Long>(timings)));
+	}
+
+	public synchronized List<Entry> getEntries() {
+		return Collections.unmodifiableList(new ArrayList<Entry>(entries));
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * {@code [{"file":..., "stage":..., "elapsed_ms":..., "timings_ms":{...}}]}
+	 */
+	@SuppressWarnings("unchecked")
+	public JSONArray toJSON() {
+		JSONArray json = new JSONArray();
+		for (Entry entry : getEntries()) {
+			JSONObject entryJSON = new JSONObject();
+			entryJSON.put("file", entry.getInput().getPath());
+			entryJSON.put("stage", entry.getStage());
+			entryJSON.put("elapsed_ms", entry.getElapsedMillis());
+			entryJSON.put("timings_ms", new JSONObject(entry.getTimings()));
+			json.add(entryJSON);
+		}
+		return json;
+	}
+}
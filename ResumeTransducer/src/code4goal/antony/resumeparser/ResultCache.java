@@ -0,0 +1,217 @@
+package code4goal.antony.resumeparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache of parsed resumes keyed by the SHA-256 of the raw input bytes, so
+ * a resume that has been seen before is answered without running Tika or
+ * GATE. Keys also cover a fingerprint of the application (the gapp and
+ * every grammar, gazetteer and rules file it refers to), so editing a JAPE
+ * file or a list invalidates everything parsed with the old version.
+ * <P>
+ * Results are kept as JSON text in a bounded in-memory LRU and, optionally,
+ * as {@code <key>.json} files in a directory that survives restarts.
+ */
+public class ResultCache {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Resource references in a saved application */
+	private static final Pattern GAPP_PATH = Pattern
+			.compile("\\$(relpath|gatehome)\\$([^<\"]+)");
+
+	private final String fingerprint;
+	private final File directory;
+	private final Map<String, String> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param fingerprint
+	 *            fingerprint of the application, see
+	 *            {@link #fingerprint(File, File)}
+	 * @param maxEntries
+	 *            number of results kept in memory
+	 * @param directory
+	 *            where results are also stored on disk, or null for a
+	 *            memory-only cache
+	 */
+	public ResultCache(String fingerprint, final int maxEntries, File directory)
+			throws IOException {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: "
+					+ maxEntries);
+		}
+		if (directory != null && !directory.isDirectory()
+				&& !directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + directory);
+		}
+		this.fingerprint = fingerprint;
+		this.directory = directory;
+		this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Fingerprint a saved application: its own bytes plus every file in the
+	 * directories of the grammars, lists and rules it refers to through
+	 * {@code $relpath$} or {@code $gatehome$} URLs.
+	 */
+	public static String fingerprint(File gapp, File gateHome)
+			throws IOException {
+		String xml = FileUtils.readFileToString(gapp, "UTF-8");
+		Set<File> resourceDirs = new TreeSet<File>();
+		Matcher m = GAPP_PATH.matcher(xml);
+		while (m.find()) {
+			File base = m.group(1).equals("relpath") ? gapp.getParentFile()
+					: gateHome;
+			File resource = new File(base, m.group(2));
+			if (resource.isFile()) {
+				resourceDirs.add(resource.getCanonicalFile().getParentFile());
+			}
+		}
+
+		MessageDigest digest = sha256();
+		digest.update(xml.getBytes(UTF8));
+		for (File dir : resourceDirs) {
+			File[] files = dir.listFiles();
+			if (files == null) {
+				continue;
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				if (file.isFile()) {
+					digest.update(file.getName().getBytes(UTF8));
+					update(digest, file);
+				}
+			}
+		}
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Cache key for a resume. The format is detected from the content, so
+	 * the file name is not part of the key: the same resume uploaded under
+	 * another name or extension is a hit.
+	 */
+	public String keyFor(File input) throws IOException {
+		MessageDigest digest = sha256();
+		digest.update(fingerprint.getBytes(UTF8));
+		update(digest, input);
+		return hex(digest.digest());
+	}
+
+	/** The stored JSON for a key, or null if there is none. */
+	public String get(String key) throws IOException {
+		String json;
+		synchronized (entries) {
+			json = entries.get(key);
+		}
+		if (json == null && directory != null) {
+			File file = new File(directory, key + ".json");
+			if (file.isFile()) {
+				json = FileUtils.readFileToString(file, "UTF-8");
+				synchronized (entries) {
+					entries.put(key, json);
+				}
+			}
+		}
+		if (json == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return json;
+	}
+
+	public void put(String key, String json) throws IOException {
+		synchronized (entries) {
+			entries.put(key, json);
+		}
+		if (directory != null) {
+			// write to a temporary file first so readers never see half an
+			// entry
+			File tmp = File.createTempFile(key, ".tmp", directory);
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(
+					tmp), UTF8)) {
+				writer.write(json);
+			}
+			File file = new File(directory, key + ".json");
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Count a lookup answered without {@link #get(String)}, by a result on
+	 * its way into the cache, e.g. for a copy of a resume parsed at the
+	 * same time.
+	 */
+	public void countHit() {
+		hits.incrementAndGet();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private static void update(MessageDigest digest, File file)
+			throws IOException {
+		byte[] buffer = new byte[8192];
+		try (InputStream in = new FileInputStream(file)) {
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, n);
+			}
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,57 @@
+package code4goal.antony.resumeparser;
+
+import gate.Annotation;
+import gate.Document;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The annotations an {@link OutputMapping} reads from one document, picked
+ * out of the default set's type index with a single lookup and bucketed by
+ * type. Their text is cut straight from the document content, instead of
+ * copying a filtered set per type and a {@code DocumentContent} per
+ * annotation.
+ * <P>
+ * Within a type, annotations come out in the order GATE's per-type sets
+ * iterate (the hash order of their ids), so the JSON is the same as it
+ * always was.
+ */
+final class ResumeExtractor {
+
+	private final String content;
+	private final Map<String, Map<Integer, Annotation>> byType = new HashMap<String, Map<Integer, Annotation>>();
+
+	ResumeExtractor(Document doc, Set<String> types) {
+		content = doc.getContent().toString();
+		for (Annotation annotation : doc.getAnnotations().get(types)) {
+			String type = annotation.getType();
+			Map<Integer, Annotation> annotations = byType.get(type);
+			if (annotations == null) {
+				annotations = new HashMap<Integer, Annotation>();
+				byType.put(type, annotations);
+			}
+			annotations.put(annotation.getId(), annotation);
+		}
+	}
+
+	Collection<Annotation> get(String type) {
+		Map<Integer, Annotation> annotations = byType.get(type);
+		return annotations == null ? Collections.<Annotation> emptyList()
+				: annotations.values();
+	}
+
+	Annotation first(String type) {
+		Collection<Annotation> annotations = get(type);
+		return annotations.isEmpty() ? null : annotations.iterator().next();
+	}
+
+	/** The document text an annotation covers */
+	String text(Annotation annotation) {
+		return content.substring(annotation.getStartNode().getOffset()
+				.intValue(), annotation.getEndNode().getOffset().intValue());
+	}
+}
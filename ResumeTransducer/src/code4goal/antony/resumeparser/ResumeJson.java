@@ -0,0 +1,47 @@
+package code4goal.antony.resumeparser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * The JSON result for one resume, written on demand to a streaming
+ * generator. Results are generated straight from the annotated document
+ * into the output (see {@link OutputMapping#json(gate.Document)}), so no
+ * object tree or string of the whole result is built; results from the
+ * {@link ResultCache} are copied through as they were stored.
+ */
+public abstract class ResumeJson {
+
+	/** Shared factory; factories are thread-safe and recycle buffers */
+	static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** Write the result as one JSON value. */
+	public abstract void writeTo(JsonGenerator generator) throws IOException;
+
+	/** The result as a string, e.g. to cache it. */
+	public String toJSONString() throws IOException {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+			writeTo(generator);
+		}
+		return writer.toString();
+	}
+
+	/** A result that has already been serialised. */
+	public static ResumeJson raw(final String json) {
+		return new ResumeJson() {
+			@Override
+			public void writeTo(JsonGenerator generator) throws IOException {
+				generator.writeRawValue(json);
+			}
+
+			@Override
+			public String toJSONString() {
+				return json;
+			}
+		};
+	}
+}
@@ -1,267 +1,334 @@
 package code4goal.antony.resumeparser;
 
-import gate.Annotation;
-import gate.AnnotationSet;
-import gate.Corpus;
-import gate.FeatureMap;
-import gate.Gate;
-import gate.Document;
 import gate.util.GateException;
 import gate.util.Out;
-import gate.Factory;
-import gate.creole.SerialAnalyserController;
-import static gate.Utils.*;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.detect.Detector;
-import org.apache.tika.exception.TikaException;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.mime.MediaType;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.sax.BodyContentHandler;
-import org.apache.tika.sax.ToXMLContentHandler;
-import org.json.simple.JSONArray;
+import org.apache.commons.io.FileUtils;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.xml.sax.ContentHandler;
-import org.xml.sax.SAXException;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang.StringUtils;
-
-import com.google.gson.JsonObject;
 
 public class ResumeParserProgram {
-	private static File parseToHTMLUsingApacheTikka(String file)
-			throws IOException, SAXException, TikaException {
-		// determine extension
-		String ext = FilenameUtils.getExtension(file);
-		String outputFileFormat = "";
-		// ContentHandler handler;
-		if (ext.equalsIgnoreCase("html") | ext.equalsIgnoreCase("pdf")
-				| ext.equalsIgnoreCase("doc") | ext.equalsIgnoreCase("docx")) {
-			outputFileFormat = ".html";
-			// handler = new ToXMLContentHandler();
-		} else if (ext.equalsIgnoreCase("txt") | ext.equalsIgnoreCase("rtf")) {
-			outputFileFormat = ".txt";
-		} else {
-			System.out.println("Input format of the file " + file
-					+ " is not supported.");
-			return null;
-		}
-		String OUTPUT_FILE_NAME = FilenameUtils.removeExtension(file)
-				+ outputFileFormat;
-		ContentHandler handler = new ToXMLContentHandler();
-		// ContentHandler handler = new BodyContentHandler();
-		// ContentHandler handler = new BodyContentHandler(
-		// new ToXMLContentHandler());
-		InputStream stream = new FileInputStream(file);
-		AutoDetectParser parser = new AutoDetectParser();
-		Metadata metadata = new Metadata();
-		try {
-			parser.parse(stream, handler, metadata);
-			FileWriter htmlFileWriter = new FileWriter(OUTPUT_FILE_NAME);
-			htmlFileWriter.write(handler.toString());
-			htmlFileWriter.flush();
-			htmlFileWriter.close();
-			return new File(OUTPUT_FILE_NAME);
-		} finally {
-			stream.close();
+	/** Shared parser service, created on first use */
+	private static ResumeParserService service;
+
+	/**
+	 * Returns the process-wide parser service, initialising GATE and ANNIE
+	 * the first time it is asked for. It holds a single controller; use a
+	 * {@link ResumeParserService} of your own to parse in parallel.
+	 */
+	public static synchronized ResumeParserService getService()
+			throws GateException, IOException {
+		if (service == null) {
+			service = new ResumeParserService(1);
 		}
+		return service;
 	}
 
 	public static JSONObject loadGateAndAnnie(File file) throws GateException,
 			IOException {
-		Out.prln("Initialising basic system...");
-		Gate.init();
-		Out.prln("...basic system initialised");
-
-		// initialise ANNIE (this may take several minutes)
-		Annie annie = new Annie();
-		annie.initAnnie();
-
-		// create a GATE corpus and add a document for each command-line
-		// argument
-		Corpus corpus = Factory.newCorpus("Annie corpus");
-		String current = new File(".").getAbsolutePath();
-		URL u = file.toURI().toURL();
-		FeatureMap params = Factory.newFeatureMap();
-		params.put("sourceUrl", u);
-		params.put("preserveOriginalContent", new Boolean(true));
-		params.put("collectRepositioningInfo", new Boolean(true));
-		Out.prln("Creating doc for " + u);
-		Document resume = (Document) Factory.createResource(
-				"gate.corpora.DocumentImpl", params);
-		corpus.add(resume);
-
-		// tell the pipeline about the corpus and run it
-		annie.setCorpus(corpus);
-		annie.execute();
-
-		Iterator iter = corpus.iterator();
-		JSONObject parsedJSON = new JSONObject();
-		Out.prln("Started parsing...");
-		// while (iter.hasNext()) {
-		if (iter.hasNext()) { // should technically be while but I am just
-								// dealing with one document
-			JSONObject profileJSON = new JSONObject();
-			Document doc = (Document) iter.next();
-			AnnotationSet defaultAnnotSet = doc.getAnnotations();
+		return getService().parse(file);
+	}
 
-			AnnotationSet curAnnSet;
-			Iterator it;
-			Annotation currAnnot;
+	private static void printUsage() {
+		System.err
+				.println("USAGE: java ResumeParser <inputfile> <outputfile> [--keep-intermediate] [--preserve-original] [--text-only] [--max-chars <n>] [--max-pages <n>] [--page-range-size <n>] [--mapping <file>]");
+		System.err
+				.println("       java ResumeParser --batch <inputdir|listfile> <outputdir|output.jsonl[.gz]|output.rcol>"
+						+ " [--threads <n>] [--converters <n>] [--assemblers <n>]"
+						+ " [--max-in-flight <n>] [--max-documents <n>] [--corpus-size <n>]"
+						+ " [--sync-interval <ms>] [--row-group-size <n>] [--cache-size <n>] [--cache-dir <dir>]"
+						+ " [--doc-timeout <ms>] [--quarantine <file>] [--tika-workers <n>] [--tika-heap <size>]"
+						+ " [--metrics <file>] [--keep-intermediate] [--preserve-original] [--text-only] [--max-chars <n>] [--max-pages <n>] [--page-range-size <n>] [--mapping <file>]");
+		System.err
+				.println("       java ResumeParser --server <port> [--threads <n>]"
+						+ " [--max-requests <n>] [--max-documents <n>] [--timeout <ms>] [--doc-timeout <ms>]"
+						+ " [--tika-workers <n>] [--tika-heap <size>]"
+						+ " [--cache-size <n>] [--cache-dir <dir>] [--preserve-original] [--text-only] [--max-chars <n>] [--max-pages <n>] [--page-range-size <n>] [--mapping <file>]");
+	}
 
-			// Name
-			curAnnSet = defaultAnnotSet.get("NameFinder");
-			if (curAnnSet.iterator().hasNext()) { // only one name will be
-													// found.
-				currAnnot = (Annotation) curAnnSet.iterator().next();
-				String gender = (String) currAnnot.getFeatures().get("gender");
-				if (gender != null && gender.length() > 0) {
-					profileJSON.put("gender", gender);
-				}
 
-				// Needed name Features
-				JSONObject nameJson = new JSONObject();
-				String[] nameFeatures = new String[] { "firstName",
-						"middleName", "surname" };
-				for (String feature : nameFeatures) {
-					String s = (String) currAnnot.getFeatures().get(feature);
-					if (s != null && s.length() > 0) {
-						nameJson.put(feature, s);
-					}
-				}
-				profileJSON.put("name", nameJson);
-			} // name
+	/**
+	 * Batch mode: parse every file of a directory, or every file listed in a
+	 * manifest, with one JVM and one set of pooled controllers.
+	 */
+	private static void runBatch(String[] args, boolean keepIntermediateFiles,
+			boolean preserveOriginalContent, boolean textOnly,
+			int maxCharacters, int maxPages, int pageRangeSize,
+			OutputMapping mapping) throws Exception {
+		if (args.length < 3) {
+			printUsage();
+			return;
+		}
+		File input = new File(args[1]);
+		File output = new File(args[2]);
+		int threads = ControllerPool.defaultSize();
+		int converters = ControllerPool.defaultSize();
+		int assemblers = 1;
+		int maxInFlight = -1;
+		int maxDocuments = ResumeParserService.DEFAULT_MAX_LIVE_DOCUMENTS;
+		int corpusSize = 1;
+		long syncIntervalMillis = 1000;
+		int rowGroupSize = 1024;
+		int cacheSize = 1024;
+		File cacheDir = null;
+		long docTimeoutMillis = 60000;
+		File quarantineFile = null;
+		File metricsFile = null;
+		int tikaWorkers = 0;
+		String tikaHeap = "512m";
+		for (int i = 3; i < args.length; i++) {
+			if (args[i].equals("--threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--converters") && i + 1 < args.length) {
+				converters = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--assemblers") && i + 1 < args.length) {
+				assemblers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-in-flight") && i + 1 < args.length) {
+				maxInFlight = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-documents") && i + 1 < args.length) {
+				maxDocuments = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--corpus-size") && i + 1 < args.length) {
+				corpusSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--sync-interval") && i + 1 < args.length) {
+				syncIntervalMillis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--row-group-size") && i + 1 < args.length) {
+				rowGroupSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+				cacheSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+				cacheDir = new File(args[++i]);
+			} else if (args[i].equals("--doc-timeout") && i + 1 < args.length) {
+				docTimeoutMillis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--quarantine") && i + 1 < args.length) {
+				quarantineFile = new File(args[++i]);
+			} else if (args[i].equals("--metrics") && i + 1 < args.length) {
+				metricsFile = new File(args[++i]);
+			} else if (args[i].equals("--tika-workers") && i + 1 < args.length) {
+				tikaWorkers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--tika-heap") && i + 1 < args.length) {
+				tikaHeap = args[++i];
+			} else {
+				printUsage();
+				return;
+			}
+		}
+		if (maxInFlight < 0) {
+			maxInFlight = 2 * threads * corpusSize;
+		}
 
-			// title
-			curAnnSet = defaultAnnotSet.get("TitleFinder");
-			if (curAnnSet.iterator().hasNext()) { // only one title will be
-													// found.
-				currAnnot = (Annotation) curAnnSet.iterator().next();
-				String title = stringFor(doc, currAnnot);
-				if (title != null && title.length() > 0) {
-					profileJSON.put("title", title);
-				}
-			}// title
+		List<File> inputs = BatchParser.listInputs(input);
+		ResumeParserService batchService = new ResumeParserService(threads,
+				maxDocuments);
+		batchService.setKeepIntermediateFiles(keepIntermediateFiles);
+		batchService.setPreserveOriginalContent(preserveOriginalContent);
+		batchService.setTextOnly(textOnly);
+		batchService.setMaxCharacters(maxCharacters);
+		batchService.setMaxPages(maxPages);
+		batchService.setPageRangeSize(pageRangeSize);
+		batchService.setOutputMapping(mapping);
+		batchService.setDocumentTimeout(docTimeoutMillis);
+		if (tikaWorkers > 0) {
+			batchService.enableTikaWorkers(tikaWorkers, tikaHeap);
+		}
+		if (cacheSize > 0) {
+			batchService.enableResultCache(cacheSize, cacheDir);
+		}
+		int failures;
+		try (OutputSink sink = openOutputSink(output, inputs,
+				syncIntervalMillis, rowGroupSize)) {
+			failures = new BatchParser(batchService, converters, assemblers,
+					maxInFlight, corpusSize).run(inputs, sink);
+		}
+		ResultCache cache = batchService.getResultCache();
+		if (cache != null) {
+			Out.prln("Result cache: " + cache.getHits() + " hits, "
+					+ cache.getMisses() + " misses");
+		}
+		if (failures > 0) {
+			System.out.println(failures + " resumes could not be parsed.");
+		}
+		Quarantine quarantine = batchService.getQuarantine();
+		if (quarantine.size() > 0) {
+			System.out.println(quarantine.size()
+					+ " of them ran out of time and were quarantined.");
+		}
+		if (quarantineFile != null) {
+			FileUtils.writeStringToFile(quarantineFile, quarantine.toJSON()
+					.toJSONString(), "UTF-8");
+		}
+		String summary = batchService.getMetrics().toJSON().toJSONString();
+		Out.prln("Stage latencies: " + summary);
+		if (metricsFile != null) {
+			FileUtils.writeStringToFile(metricsFile, summary, "UTF-8");
+		}
+	}
 
-			// email,address,phone,url
-			String[] annSections = new String[] { "EmailFinder",
-					"AddressFinder", "PhoneFinder", "URLFinder" };
-			String[] annKeys = new String[] { "email", "address", "phone",
-					"url" };
-			for (short i = 0; i < annSections.length; i++) {
-				String annSection = annSections[i];
-				curAnnSet = defaultAnnotSet.get(annSection);
-				it = curAnnSet.iterator();
-				JSONArray sectionArray = new JSONArray();
-				while (it.hasNext()) { // extract all values for each
-										// address,email,phone etc..
-					currAnnot = (Annotation) it.next();
-					String s = stringFor(doc, currAnnot);
-					if (s != null && s.length() > 0) {
-						sectionArray.add(s);
-					}
-				}
-				if (sectionArray.size() > 0) {
-					profileJSON.put(annKeys[i], sectionArray);
-				}
-			}
-			if (!profileJSON.isEmpty()) {
-				parsedJSON.put("basics", profileJSON);
+	/**
+	 * Server mode: keep GATE and the controllers loaded and parse resumes
+	 * posted over HTTP until the process is killed.
+	 */
+	private static void runServer(String[] args,
+			boolean preserveOriginalContent, boolean textOnly,
+			int maxCharacters, int maxPages, int pageRangeSize,
+			OutputMapping mapping) throws Exception {
+		if (args.length < 2) {
+			printUsage();
+			return;
+		}
+		int port = Integer.parseInt(args[1]);
+		int threads = ControllerPool.defaultSize();
+		int maxRequests = 1000;
+		int maxDocuments = ResumeParserService.DEFAULT_MAX_LIVE_DOCUMENTS;
+		long timeoutMillis = 30000;
+		long docTimeoutMillis = -1;
+		int cacheSize = 1024;
+		File cacheDir = null;
+		int tikaWorkers = 0;
+		String tikaHeap = "512m";
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-requests") && i + 1 < args.length) {
+				maxRequests = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-documents") && i + 1 < args.length) {
+				maxDocuments = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--timeout") && i + 1 < args.length) {
+				timeoutMillis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--doc-timeout") && i + 1 < args.length) {
+				docTimeoutMillis = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+				cacheSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+				cacheDir = new File(args[++i]);
+			} else if (args[i].equals("--tika-workers") && i + 1 < args.length) {
+				tikaWorkers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--tika-heap") && i + 1 < args.length) {
+				tikaHeap = args[++i];
+			} else {
+				printUsage();
+				return;
 			}
+		}
 
-			// awards,credibility,education_and_training,extracurricular,misc,skills,summary
-			String[] otherSections = new String[] { "summary",
-					"education_and_training", "skills", "accomplishments",
-					"awards", "credibility", "extracurricular", "misc" };
-			for (String otherSection : otherSections) {
-				curAnnSet = defaultAnnotSet.get(otherSection);
-				it = curAnnSet.iterator();
-				JSONArray subSections = new JSONArray();
-				while (it.hasNext()) {
-					JSONObject subSection = new JSONObject();
-					currAnnot = (Annotation) it.next();
-					String key = (String) currAnnot.getFeatures().get(
-							"sectionHeading");
-					String value = stringFor(doc, currAnnot);
-					if (!StringUtils.isBlank(key)
-							&& !StringUtils.isBlank(value)) {
-						subSection.put(key, value);
-					}
-					if (!subSection.isEmpty()) {
-						subSections.add(subSection);
-					}
-				}
-				if (!subSections.isEmpty()) {
-					parsedJSON.put(otherSection, subSections);
-				}
+		ResumeParserService serverService = new ResumeParserService(threads,
+				maxDocuments);
+		serverService.setPreserveOriginalContent(preserveOriginalContent);
+		serverService.setTextOnly(textOnly);
+		serverService.setMaxCharacters(maxCharacters);
+		serverService.setMaxPages(maxPages);
+		serverService.setPageRangeSize(pageRangeSize);
+		serverService.setOutputMapping(mapping);
+		// by default stop working on a resume once nobody waits for it
+		serverService.setDocumentTimeout(docTimeoutMillis < 0 ? timeoutMillis
+				: docTimeoutMillis);
+		if (tikaWorkers > 0) {
+			serverService.enableTikaWorkers(tikaWorkers, tikaHeap);
+		}
+		if (cacheSize > 0) {
+			serverService.enableResultCache(cacheSize, cacheDir);
+		}
+		final ResumeParserServer server = new ResumeParserServer(
+				serverService, port, maxRequests, timeoutMillis);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				server.stop();
 			}
+		});
+		server.start();
+	}
 
-			// work_experience
-			curAnnSet = defaultAnnotSet.get("work_experience");
-			it = curAnnSet.iterator();
-			JSONArray workExperiences = new JSONArray();
-			while (it.hasNext()) {
-				JSONObject workExperience = new JSONObject();
-				currAnnot = (Annotation) it.next();
-				String key = (String) currAnnot.getFeatures().get(
-						"sectionHeading");
-				if (key.equals("work_experience_marker")) {
-					// JSONObject details = new JSONObject();
-					String[] annotations = new String[] { "date_start",
-							"date_end", "jobtitle", "organization" };
-					for (String annotation : annotations) {
-						String v = (String) currAnnot.getFeatures().get(
-								annotation);
-						if (!StringUtils.isBlank(v)) {
-							// details.put(annotation, v);
-							workExperience.put(annotation, v);
-						}
-					}
-					// if (!details.isEmpty()) {
-					// workExperience.put("work_details", details);
-					// }
-					key = "text";
-
-				}
-				String value = stringFor(doc, currAnnot);
-				if (!StringUtils.isBlank(key) && !StringUtils.isBlank(value)) {
-					workExperience.put(key, value);
-				}
-				if (!workExperience.isEmpty()) {
-					workExperiences.add(workExperience);
-				}
+	/**
+	 * A JSON Lines stream for {@code .jsonl} (gzip-compressed for
+	 * {@code .jsonl.gz}), a columnar file for {@code .rcol}, otherwise a
+	 * directory of JSON files.
+	 */
+	private static OutputSink openOutputSink(File output, List<File> inputs,
+			long syncIntervalMillis, int rowGroupSize) throws IOException {
+		String name = output.getName();
+		if (name.endsWith(".rcol")) {
+			return new ColumnarOutputSink(output, rowGroupSize);
+		}
+		if (name.endsWith(".jsonl")) {
+			return new JsonLinesOutputSink(output, false, syncIntervalMillis);
+		} else if (name.endsWith(".jsonl.gz")) {
+			return new JsonLinesOutputSink(output, true, syncIntervalMillis);
+		}
+		return new DirectoryOutputSink(output, inputs);
+	}
 
+	public static void main(String[] args) {
+		// --keep-intermediate, --preserve-original, --text-only, --max-chars,
+		// --max-pages, --page-range-size and --mapping may appear anywhere
+		boolean keepIntermediateFiles = false;
+		boolean preserveOriginalContent = false;
+		boolean textOnly = false;
+		int maxCharacters = -1;
+		int maxPages = -1;
+		int pageRangeSize = -1;
+		File mappingFile = null;
+		List<String> remaining = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--keep-intermediate")) {
+				keepIntermediateFiles = true;
+			} else if (args[i].equals("--preserve-original")) {
+				preserveOriginalContent = true;
+			} else if (args[i].equals("--text-only")) {
+				textOnly = true;
+			} else if (args[i].equals("--max-chars") && i + 1 < args.length) {
+				maxCharacters = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-pages") && i + 1 < args.length) {
+				maxPages = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--page-range-size")
+					&& i + 1 < args.length) {
+				pageRangeSize = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--mapping") && i + 1 < args.length) {
+				mappingFile = new File(args[++i]);
+			} else {
+				remaining.add(args[i]);
 			}
-			if (!workExperiences.isEmpty()) {
-				parsedJSON.put("work_experience", workExperiences);
-			}
+		}
+		args = remaining.toArray(new String[remaining.size()]);
 
-		}// if
-		Out.prln("Completed parsing...");
-		return parsedJSON;
-	}
+		OutputMapping mapping = OutputMapping.defaultMapping();
+		if (mappingFile != null) {
+			try {
+				mapping = OutputMapping.load(mappingFile);
+			} catch (IOException e) {
+				System.err.println("Cannot load the output mapping: "
+						+ e.getMessage());
+				return;
+			}
+		}
 
-	public static void main(String[] args) {
 		if (args.length == 0) {
-			System.err
-					.println("USAGE: java ResumeParser <inputfile> <outputfile>");
+			printUsage();
+			return;
+		}
+		if (args[0].equals("--batch")) {
+			try {
+				runBatch(args, keepIntermediateFiles, preserveOriginalContent,
+						textOnly, maxCharacters, maxPages, pageRangeSize,
+						mapping);
+			} catch (Exception e) {
+				System.out.println("Sad Face :( .Something went wrong.");
+				e.printStackTrace();
+			}
+			return;
+		}
+		if (args[0].equals("--server")) {
+			try {
+				runServer(args, preserveOriginalContent, textOnly,
+						maxCharacters, maxPages, pageRangeSize, mapping);
+			} catch (Exception e) {
+				System.out.println("Sad Face :( .Something went wrong.");
+				e.printStackTrace();
+			}
 			return;
 		}
 		String inputFileName = args[0];
@@ -269,10 +336,16 @@ public class ResumeParserProgram {
 				: "parsed_resume.json";
 
 		try {
-			File tikkaConvertedFile = parseToHTMLUsingApacheTikka(inputFileName);
-			if (tikkaConvertedFile != null) {
-				JSONObject parsedJSON = loadGateAndAnnie(tikkaConvertedFile);
-
+			ResumeParserService parser = getService();
+			parser.setKeepIntermediateFiles(keepIntermediateFiles);
+			parser.setPreserveOriginalContent(preserveOriginalContent);
+			parser.setTextOnly(textOnly);
+			parser.setMaxCharacters(maxCharacters);
+			parser.setMaxPages(maxPages);
+			parser.setPageRangeSize(pageRangeSize);
+			parser.setOutputMapping(mapping);
+			JSONObject parsedJSON = parser.parseResume(inputFileName);
+			if (parsedJSON != null) {
 				Out.prln("Writing to output...");
 				FileWriter jsonFileWriter = new FileWriter(outputFileName);
 				jsonFileWriter.write(parsedJSON.toJSONString());
@@ -0,0 +1,281 @@
+package code4goal.antony.resumeparser;
+
+import gate.util.Out;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.json.simple.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP front end for a {@link ResumeParserService}, so callers do
+ * not pay JVM and GATE start-up per resume.
+ * <UL>
+ * <LI>{@code POST /parse} with the resume bytes as body returns the parsed
+ * JSON. The format is detected from the bytes, so neither a file name nor
+ * a Content-Type is needed.</LI>
+ * <LI>{@code GET /health} returns the service status.</LI>
+ * </UL>
+ * Requests are handled on {@link IoExecutors I/O threads} (virtual threads
+ * where the runtime has them), so many uploads can wait cheaply while the
+ * service runs GATE on one core each. At most {@code maxRequests} resumes
+ * are accepted at once; requests that cannot start within the request
+ * timeout get 503, and requests that do not finish within it get 504. A
+ * resume answered with 504 still counts against {@code maxRequests} until
+ * the parser is done with it, since neither Tika nor GATE can be stopped
+ * halfway.
+ */
+public class ResumeParserServer {
+
+	/** Largest accepted request body */
+	private static final long MAX_BODY_BYTES = 20L * 1024 * 1024;
+
+	private final ResumeParserService service;
+	private final HttpServer server;
+	private final ExecutorService parsers;
+	private final ExecutorService handlers;
+	private final Semaphore permits;
+	private final int maxRequests;
+	private final long timeoutMillis;
+
+	/**
+	 * @param service
+	 *            the parser
+	 * @param port
+	 *            port to listen on
+	 * @param maxRequests
+	 *            maximum number of resumes being converted, waiting for a
+	 *            processing engine or parsed at the same time
+	 * @param timeoutMillis
+	 *            how long a request may wait for and spend in the parser
+	 */
+	public ResumeParserServer(ResumeParserService service, int port,
+			int maxRequests, long timeoutMillis) throws IOException {
+		this.service = service;
+		this.maxRequests = maxRequests;
+		this.timeoutMillis = timeoutMillis;
+		this.permits = new Semaphore(maxRequests, true);
+		this.parsers = IoExecutors.newIoExecutor("parser");
+		this.handlers = IoExecutors.newIoExecutor("http");
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/parse", new ParseHandler());
+		server.createContext("/health", new HealthHandler());
+		server.setExecutor(handlers);
+	}
+
+	public void start() {
+		server.start();
+		Out.prln("Listening on port " + server.getAddress().getPort()
+				+ (IoExecutors.virtualThreadsAvailable() ? " (virtual threads)"
+						: ""));
+	}
+
+	/** Stop accepting requests, giving running ones a second to finish. */
+	public void stop() {
+		server.stop(1);
+		handlers.shutdown();
+		parsers.shutdown();
+	}
+
+	private class ParseHandler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			File resume = null;
+			// once the parse has the resume, it deletes it
+			ParseTask task = null;
+			try {
+				if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+					sendError(exchange, 405, "Use POST");
+					return;
+				}
+				long contentLength = contentLength(exchange);
+				if (contentLength > MAX_BODY_BYTES) {
+					sendError(exchange, 413, "Resume larger than "
+							+ MAX_BODY_BYTES + " bytes");
+					return;
+				}
+				resume = File.createTempFile("resume", null);
+				if (!copyBody(exchange.getRequestBody(), resume)) {
+					sendError(exchange, 413, "Resume larger than "
+							+ MAX_BODY_BYTES + " bytes");
+					return;
+				}
+				long deadline = System.currentTimeMillis() + timeoutMillis;
+				if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+					sendError(exchange, 503, "Too many requests in progress");
+					return;
+				}
+				try {
+					task = new ParseTask(resume);
+					task.result = parsers.submit(task);
+				} catch (RuntimeException e) {
+					task = null;
+					permits.release();
+					throw e;
+				}
+				answer(exchange, task, deadline);
+			} catch (Exception e) {
+				sendError(exchange, 500, e.toString());
+			} finally {
+				if (task == null && resume != null) {
+					resume.delete();
+				}
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Parses a spooled request body. The file is deleted, and the permit
+	 * released, once the parser is done with it, which may be after a timed
+	 * out request has been answered.
+	 */
+	private class ParseTask implements Callable<JSONObject> {
+		final File resume;
+		Future<JSONObject> result;
+		/**
+		 * Set by whichever runs first: the parse, or a timeout before it
+		 * started, which then cleans up in its place
+		 */
+		final AtomicBoolean claimed = new AtomicBoolean();
+
+		ParseTask(File resume) {
+			this.resume = resume;
+		}
+
+		@Override
+		public JSONObject call() throws Exception {
+			if (claimed.getAndSet(true)) {
+				return null;
+			}
+			try {
+				return service.parseResume(resume.getPath());
+			} finally {
+				resume.delete();
+				permits.release();
+			}
+		}
+
+		/** Clean up if the parse has not started, and never let it start */
+		void abandon() {
+			if (!claimed.getAndSet(true)) {
+				resume.delete();
+				permits.release();
+			}
+		}
+	}
+
+	/** Wait for a parse until the deadline and answer the request */
+	private void answer(HttpExchange exchange, ParseTask task, long deadline)
+			throws IOException {
+		try {
+			JSONObject parsedJSON = task.result.get(
+					Math.max(0, deadline - System.currentTimeMillis()),
+					TimeUnit.MILLISECONDS);
+			if (parsedJSON == null) {
+				sendError(exchange, 415, "Input format is not supported");
+			} else {
+				send(exchange, 200, parsedJSON.toJSONString());
+			}
+		} catch (TimeoutException e) {
+			// a running parse is left to finish rather than interrupted:
+			// that would only stop this thread waiting for Tika or GATE
+			task.abandon();
+			sendError(exchange, 504, "Parsing took longer than "
+					+ timeoutMillis + " ms");
+		} catch (InterruptedException e) {
+			task.abandon();
+			Thread.currentThread().interrupt();
+			sendError(exchange, 500, e.toString());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof DocumentTimeoutException) {
+				sendError(exchange, 504, e.getCause().getMessage());
+			} else {
+				sendError(exchange, 500, e.getCause().toString());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private class HealthHandler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				JSONObject health = new JSONObject();
+				health.put("status", "ok");
+				health.put("engines", service.getPool().size());
+				health.put("max_requests", maxRequests);
+				health.put("in_progress",
+						maxRequests - permits.availablePermits());
+				health.put("waiting", permits.getQueueLength());
+				health.put("live_documents", service.getLiveDocuments());
+				health.put("quarantined", service.getQuarantine().size());
+				send(exchange, 200, health.toJSONString());
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	private static long contentLength(HttpExchange exchange) {
+		String length = exchange.getRequestHeaders().getFirst("Content-Length");
+		try {
+			return length == null ? -1 : Long.parseLong(length.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/** @return false if the body is larger than {@link #MAX_BODY_BYTES} */
+	private static boolean copyBody(InputStream body, File file)
+			throws IOException {
+		byte[] buffer = new byte[8192];
+		long total = 0;
+		try (OutputStream out = new FileOutputStream(file)) {
+			int n;
+			while ((n = body.read(buffer)) != -1) {
+				total += n;
+				if (total > MAX_BODY_BYTES) {
+					return false;
+				}
+				out.write(buffer, 0, n);
+			}
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void sendError(HttpExchange exchange, int status,
+			String message) throws IOException {
+		JSONObject error = new JSONObject();
+		error.put("error", message);
+		send(exchange, status, error.toJSONString());
+	}
+
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException {
+		byte[] body = json.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
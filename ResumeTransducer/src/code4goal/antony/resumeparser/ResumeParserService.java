@@ -0,0 +1,832 @@
+package code4goal.antony.resumeparser;
+
+import gate.Annotation;
+import gate.Corpus;
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.Gate;
+import gate.GateConstants;
+import gate.Utils;
+import gate.creole.ExecutionInterruptedException;
+import gate.util.GateException;
+import gate.util.Out;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.xml.sax.SAXException;
+import org.apache.tika.exception.TikaException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Resident resume parser. GATE and the ANNIE application are initialised
+ * once when the service is created; every later call to
+ * {@link #parse(File)} or {@link #parseResume(String)} reuses the loaded
+ * controller instead of paying the start-up cost again.
+ */
+public class ResumeParserService {
+
+	/** Copies of the ANNIE application, loaded once per service */
+	private final ControllerPool pool;
+
+	/** Per-stage latencies of everything this service parses */
+	private final MetricsRegistry metrics = new MetricsRegistry();
+
+	/** Tika front end, shared by all threads */
+	private final TikaConverter converter = new TikaConverter(metrics);
+
+	/**
+	 * Running the application is CPU-bound: however many controllers are
+	 * pooled and however many threads are waiting, no more run at once than
+	 * there are cores.
+	 */
+	private final Semaphore cpuPermits = new Semaphore(
+			ControllerPool.defaultSize(), true);
+
+	/** Interrupts GATE runs that are over their time budget */
+	private static final ScheduledExecutorService WATCHDOG = new ScheduledThreadPoolExecutor(
+			1, IoExecutors.daemonThreadFactory("watchdog"));
+
+	/** Runs Tika conversions that have a time budget */
+	private final ExecutorService tikaExecutor = IoExecutors
+			.newIoExecutor("tika");
+
+	/** Child JVMs that run Tika, or null to run it in this one */
+	private volatile TikaWorkerPool tikaWorkers;
+
+	/** Time budget per document and stage, 0 for none */
+	private volatile long documentTimeoutMillis;
+
+	/** Resumes that ran out of time */
+	private final Quarantine quarantine = new Quarantine();
+
+	/**
+	 * Whether documents keep the original markup and repositioning info,
+	 * see {@link #setPreserveOriginalContent(boolean)}
+	 */
+	private volatile boolean preserveOriginalContent;
+
+	/** Default for the cap on live GATE documents */
+	public static final int DEFAULT_MAX_LIVE_DOCUMENTS = 128;
+
+	/**
+	 * One permit per GATE document that may exist at the same time.
+	 * Documents hold the whole annotation graph, so callers wait here rather
+	 * than let the heap grow with the backlog.
+	 */
+	private final Semaphore liveDocuments;
+
+	private final int maxLiveDocuments;
+
+	/** Results of earlier parses, or null if caching is off */
+	private volatile ResultCache resultCache;
+
+	/** How annotations become the output JSON */
+	private volatile OutputMapping outputMapping = OutputMapping
+			.defaultMapping();
+
+	/**
+	 * Initialise GATE (if nobody has done so yet in this JVM) and load the
+	 * resume parser application, allowing one copy per core.
+	 */
+	public ResumeParserService() throws GateException, IOException {
+		this(ControllerPool.defaultSize());
+	}
+
+	/**
+	 * @param poolSize
+	 *            maximum number of resumes that can be parsed concurrently
+	 */
+	public ResumeParserService(int poolSize) throws GateException,
+			IOException {
+		this(poolSize, DEFAULT_MAX_LIVE_DOCUMENTS);
+	}
+
+	/**
+	 * @param poolSize
+	 *            maximum number of resumes that can be parsed concurrently
+	 * @param maxLiveDocuments
+	 *            maximum number of GATE documents in memory at once, counting
+	 *            those handed out by {@link #annotate(List)} and not yet
+	 *            {@link #release(List) released}
+	 */
+	public ResumeParserService(int poolSize, int maxLiveDocuments)
+			throws GateException, IOException {
+		if (maxLiveDocuments < 1) {
+			throw new IllegalArgumentException(
+					"maxLiveDocuments must be positive: " + maxLiveDocuments);
+		}
+		this.maxLiveDocuments = maxLiveDocuments;
+		this.liveDocuments = new Semaphore(maxLiveDocuments, true);
+		initGate();
+		Annie annie = new Annie();
+		annie.initAnnie();
+		pool = new ControllerPool(annie, poolSize);
+	}
+
+	public int getMaxLiveDocuments() {
+		return maxLiveDocuments;
+	}
+
+	/** Number of GATE documents this service has created and not deleted */
+	public int getLiveDocuments() {
+		return maxLiveDocuments - liveDocuments.availablePermits();
+	}
+
+	public ControllerPool getPool() {
+		return pool;
+	}
+
+	public TikaConverter getConverter() {
+		return converter;
+	}
+
+	/**
+	 * Latency histograms of the parsing stages: {@code tika.<format>},
+	 * {@code document.create}, {@code annie.execute}, one
+	 * {@code pr.<name>} per processing resource of the application,
+	 * {@code json.assemble} and, for {@link #parseResume(String)},
+	 * {@code resume.total}, or {@code resume.cached} for results from the
+	 * cache. Processing resource times are measured by GATE
+	 * in whole milliseconds per controller run, so with several documents
+	 * per corpus they cover the whole corpus.
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Remember parsed resumes so byte-identical copies are answered without
+	 * parsing them again.
+	 *
+	 * @param maxEntries
+	 *            number of results kept in memory
+	 * @param directory
+	 *            where results are also kept on disk, or null
+	 */
+	public void enableResultCache(int maxEntries, File directory)
+			throws IOException {
+		String fingerprint = ResultCache.fingerprint(
+				Annie.getApplicationFile(), Gate.getGateHome())
+				+ outputMapping.getFingerprint() + "/"
+				+ converter.getFingerprint();
+		resultCache = new ResultCache(fingerprint, maxEntries, directory);
+	}
+
+	/** The result cache, or null if it has not been enabled. */
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Use {@code mapping} instead of the default to build the JSON. The
+	 * mapping is part of the result cache's key, so set it before
+	 * {@link #enableResultCache(int, File) enabling} the cache.
+	 *
+	 * @throws IllegalStateException
+	 *             if the result cache is already enabled
+	 */
+	public void setOutputMapping(OutputMapping mapping) {
+		if (resultCache != null) {
+			throw new IllegalStateException(
+					"The output mapping must be set before the result cache is enabled");
+		}
+		outputMapping = mapping;
+	}
+
+	public OutputMapping getOutputMapping() {
+		return outputMapping;
+	}
+
+	static synchronized void initGate() throws GateException {
+		if (!Gate.isInitialised()) {
+			Out.prln("Initialising basic system...");
+			Gate.init();
+			Out.prln("...basic system initialised");
+		}
+	}
+
+	/**
+	 * Give up on resumes that spend more than {@code millis} in Apache Tika,
+	 * or in the GATE application, and add them to the
+	 * {@link #getQuarantine() quarantine}. A corpus of several documents
+	 * gets the budget once per document, and none of them is quarantined
+	 * when it runs over (see {@link #annotate(List)}). Off (0) by default.
+	 * <P>
+	 * GATE runs are interrupted through the controller and the controller
+	 * is replaced with a fresh copy. Tika cannot be stopped from outside, so
+	 * its conversion is abandoned on its own thread.
+	 */
+	public void setDocumentTimeout(long millis) {
+		documentTimeoutMillis = millis;
+	}
+
+	public long getDocumentTimeout() {
+		return documentTimeoutMillis;
+	}
+
+	public Quarantine getQuarantine() {
+		return quarantine;
+	}
+
+	/**
+	 * Whether GATE documents keep a copy of the original content and the
+	 * repositioning info that maps offsets back to it. Nothing in the
+	 * parser reads either, so by default (false) documents are created
+	 * without them, which saves the second copy of the text and the offset
+	 * arrays. Turn it on to debug offsets against the source markup.
+	 */
+	public void setPreserveOriginalContent(boolean preserveOriginalContent) {
+		this.preserveOriginalContent = preserveOriginalContent;
+	}
+
+	public boolean isPreserveOriginalContent() {
+		return preserveOriginalContent;
+	}
+
+	/**
+	 * Whether Tika's output is also written next to each input, for
+	 * debugging the grammars. Off by default: the converted text is handed
+	 * to GATE in memory.
+	 */
+	public void setKeepIntermediateFiles(boolean keepIntermediateFiles) {
+		converter.setKeepIntermediateFiles(keepIntermediateFiles);
+	}
+
+	/**
+	 * Hand PDF, DOC and DOCX resumes to GATE as plain text rather than
+	 * XHTML, see {@link TikaConverter#setTextOnly(boolean)}. Like the output
+	 * mapping this is part of the result cache's key, so set it first.
+	 *
+	 * @throws IllegalStateException
+	 *             if the result cache is already enabled
+	 */
+	public void setTextOnly(boolean textOnly) {
+		if (resultCache != null) {
+			throw new IllegalStateException(
+					"Text-only mode must be set before the result cache is enabled");
+		}
+		converter.setTextOnly(textOnly);
+	}
+
+	public boolean isTextOnly() {
+		return converter.isTextOnly();
+	}
+
+	/**
+	 * Stop extracting a resume's text after {@code maxCharacters}, or -1
+	 * (the default) for no limit; see
+	 * {@link TikaConverter#setMaxCharacters(int)}. Part of the result
+	 * cache's key, so set it first.
+	 *
+	 * @throws IllegalStateException
+	 *             if the result cache is already enabled
+	 */
+	public void setMaxCharacters(int maxCharacters) {
+		if (resultCache != null) {
+			throw new IllegalStateException(
+					"The character limit must be set before the result cache is enabled");
+		}
+		converter.setMaxCharacters(maxCharacters);
+	}
+
+	public int getMaxCharacters() {
+		return converter.getMaxCharacters();
+	}
+
+	/**
+	 * Stop extracting a PDF resume after {@code maxPages}, or -1 (the
+	 * default) for no limit; see {@link TikaConverter#setMaxPages(int)}.
+	 * Part of the result cache's key, so set it first.
+	 *
+	 * @throws IllegalStateException
+	 *             if the result cache is already enabled
+	 */
+	public void setMaxPages(int maxPages) {
+		if (resultCache != null) {
+			throw new IllegalStateException(
+					"The page limit must be set before the result cache is enabled");
+		}
+		converter.setMaxPages(maxPages);
+	}
+
+	public int getMaxPages() {
+		return converter.getMaxPages();
+	}
+
+	/**
+	 * Extract PDFs of more than {@code pageRangeSize} pages in parallel
+	 * ranges of that many pages, or -1 (the default) not to split them; see
+	 * {@link TikaConverter#setPageRangeSize(int)}. Part of the result
+	 * cache's key, so set it first.
+	 *
+	 * @throws IllegalStateException
+	 *             if the result cache is already enabled
+	 */
+	public void setPageRangeSize(int pageRangeSize) {
+		if (resultCache != null) {
+			throw new IllegalStateException(
+					"The page range size must be set before the result cache is enabled");
+		}
+		converter.setPageRangeSize(pageRangeSize);
+	}
+
+	public int getPageRangeSize() {
+		return converter.getPageRangeSize();
+	}
+
+	/**
+	 * Run Tika in {@code workers} child JVMs, each with at most
+	 * {@code maxHeap} (in {@code -Xmx} syntax) of heap, instead of in this
+	 * one; see {@link TikaWorkerPool}. A conversion that runs over the
+	 * document timeout then kills its worker, which is replaced, instead of
+	 * being abandoned on a thread of this JVM.
+	 */
+	public void enableTikaWorkers(int workers, String maxHeap) {
+		TikaWorkerPool old = tikaWorkers;
+		tikaWorkers = new TikaWorkerPool(converter, workers, maxHeap);
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/** The Tika workers, or null if Tika runs in this JVM. */
+	public TikaWorkerPool getTikaWorkers() {
+		return tikaWorkers;
+	}
+
+	/**
+	 * Convert a resume with Apache Tika.
+	 *
+	 * @return the converted resume or null if the input format is not
+	 *         supported
+	 * @throws DocumentTimeoutException
+	 *             if the conversion takes longer than the document timeout
+	 */
+	public ConvertedResume convert(final File input) throws IOException,
+			SAXException, TikaException, GateException {
+		long timeout = documentTimeoutMillis;
+		long start = System.nanoTime();
+		TikaWorkerPool workers = tikaWorkers;
+		if (workers != null) {
+			try {
+				return workers.convert(input, Math.max(0, timeout));
+			} catch (TimeoutException e) {
+				throw conversionTimedOut(input, start, timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GateException("Interrupted while converting " + input);
+			}
+		}
+		if (timeout <= 0) {
+			return converter.convert(input);
+		}
+		Future<ConvertedResume> result = tikaExecutor
+				.submit(new Callable<ConvertedResume>() {
+					@Override
+					public ConvertedResume call() throws Exception {
+						return converter.convert(input);
+					}
+				});
+		try {
+			return result.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			throw conversionTimedOut(input, start, timeout);
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new GateException("Interrupted while converting " + input);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			} else if (cause instanceof TikaException) {
+				throw (TikaException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new GateException(cause);
+		}
+	}
+
+	/** Quarantine a resume whose conversion ran out of time */
+	private DocumentTimeoutException conversionTimedOut(File input,
+			long start, long timeout) {
+		quarantine.add(input, "tika", TimeUnit.NANOSECONDS.toMillis(System
+				.nanoTime() - start), Collections.<String, Long> emptyMap());
+		return new DocumentTimeoutException(input + " took longer than "
+				+ timeout + " ms to convert");
+	}
+
+	/**
+	 * Convert the given resume with Apache Tika and run it through the
+	 * parser.
+	 *
+	 * @return the parsed resume or null if the input format is not
+	 *         supported
+	 */
+	public JSONObject parseResume(String inputFileName) throws GateException,
+			IOException, SAXException, TikaException {
+		long start = System.nanoTime();
+		File input = new File(inputFileName);
+		ResultCache cache = resultCache;
+		String key = null;
+		if (cache != null) {
+			key = cache.keyFor(input);
+			String cached = cache.get(key);
+			if (cached != null) {
+				JSONObject parsedJSON;
+				try {
+					parsedJSON = (JSONObject) new JSONParser().parse(cached);
+				} catch (ParseException e) {
+					throw new IOException("Corrupt cache entry " + key, e);
+				}
+				metrics.recordSince("resume.cached", start);
+				return parsedJSON;
+			}
+		}
+		ConvertedResume converted = convert(input);
+		if (converted == null) {
+			return null;
+		}
+		JSONObject parsedJSON = parseConverted(
+				Collections.singletonList(converted)).get(input);
+		if (cache != null) {
+			cache.put(key, parsedJSON.toJSONString());
+		}
+		metrics.recordSince("resume.total", start);
+		return parsedJSON;
+	}
+
+	/**
+	 * Run a set of converted resumes through the parser as a single corpus,
+	 * so the per-execution controller overhead is paid once for all of
+	 * them. Safe to call from several threads; each call checks out its own
+	 * controller.
+	 *
+	 * @return the parsed JSON for every resume, keyed by its source file, in
+	 *         the order given
+	 */
+	public Map<File, JSONObject> parseConverted(List<ConvertedResume> resumes)
+			throws GateException {
+		List<Document> documents = annotate(resumes);
+		List<JSONObject> results;
+		try {
+			results = assembleAll(documents);
+		} finally {
+			release(documents);
+		}
+		Map<File, JSONObject> parsed = new LinkedHashMap<File, JSONObject>();
+		for (int i = 0; i < resumes.size(); i++) {
+			parsed.put(resumes.get(i).getSource(), results.get(i));
+		}
+		return parsed;
+	}
+
+	/**
+	 * First half of {@link #parseConverted(List)}: create GATE documents for
+	 * the resumes and run them through a pooled controller as one corpus.
+	 * The controller is back in the pool when this returns, so the
+	 * documents can be assembled with {@link #assemble(Document)} on
+	 * another thread while the controller parses the next corpus.
+	 * <P>
+	 * Waits while the cap on live documents is reached. The caller owns the
+	 * documents and must hand them to {@link #release(List)} once done.
+	 *
+	 * @return the annotated documents, in the order given
+	 * @throws DocumentTimeoutException
+	 *             if the corpus ran over its time budget. Only a single
+	 *             resume is quarantined for that: the resumes of a larger
+	 *             corpus may have been held up by any one of them, so retry
+	 *             them one at a time to find it.
+	 */
+	public List<Document> annotate(List<ConvertedResume> resumes)
+			throws GateException {
+		List<FeatureMap> documentParams = new ArrayList<FeatureMap>();
+		List<File> sources = new ArrayList<File>();
+		List<List<Long>> pageOffsets = new ArrayList<List<Long>>();
+		for (ConvertedResume resume : resumes) {
+			FeatureMap params = Factory.newFeatureMap();
+			params.put("stringContent", resume.getContent());
+			params.put("mimeType", resume.getMimeType());
+			params.put("preserveOriginalContent", preserveOriginalContent);
+			params.put("collectRepositioningInfo", preserveOriginalContent);
+			documentParams.add(params);
+			sources.add(resume.getSource());
+			pageOffsets.add(resume.getPageOffsets());
+		}
+		return annotate(documentParams, sources, pageOffsets);
+	}
+
+	/**
+	 * Delete documents returned by {@link #annotate(List)}, so their
+	 * content and annotations can be collected and others can be created.
+	 */
+	public void release(List<Document> documents) {
+		for (Document doc : documents) {
+			Factory.deleteResource(doc);
+		}
+		liveDocuments.release(documents.size());
+	}
+
+	/**
+	 * Create documents from their parameters and run them as one corpus.
+	 *
+	 * @param pageOffsets
+	 *            the page offsets of each document where known, or null
+	 */
+	private List<Document> annotate(List<FeatureMap> documentParams,
+			List<File> sources, List<List<Long>> pageOffsets)
+			throws GateException {
+		int count = documentParams.size();
+		if (count > maxLiveDocuments) {
+			throw new IllegalArgumentException("Cannot parse " + count
+					+ " documents at once with at most " + maxLiveDocuments
+					+ " live documents");
+		}
+		try {
+			liveDocuments.acquire(count);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GateException(
+					"Interrupted while waiting for documents to be released");
+		}
+		List<Document> documents = new ArrayList<Document>();
+		boolean annotated = false;
+		try {
+			for (int i = 0; i < count; i++) {
+				long start = System.nanoTime();
+				Out.prln("Creating doc for " + sources.get(i));
+				Document doc = (Document) Factory.createResource(
+						"gate.corpora.DocumentImpl", documentParams.get(i));
+				documents.add(doc);
+				addPageOffsets(doc,
+						pageOffsets == null ? null : pageOffsets.get(i));
+				metrics.recordSince("document.create", start);
+			}
+			execute(documents, sources);
+			annotated = true;
+			return documents;
+		} finally {
+			if (!annotated) {
+				for (Document doc : documents) {
+					Factory.deleteResource(doc);
+				}
+				liveDocuments.release(count);
+			}
+		}
+	}
+
+	/**
+	 * Record where every page of the document starts, as a list of offsets
+	 * in the document feature {@code pageOffsets}, for telling sections
+	 * apart by page. Tika puts each page of a PDF (or of a split PDF, see
+	 * {@link TikaConverter#setPageRangeSize(int)}) in a
+	 * {@code <div class="page">}, which GATE keeps in the original markups;
+	 * in text-only mode it gives the offsets instead. Documents without
+	 * pages get no feature.
+	 *
+	 * @param known
+	 *            the offsets from the conversion, or null to look for pages
+	 */
+	private static void addPageOffsets(Document doc, List<Long> known) {
+		if (known != null) {
+			if (!known.isEmpty()) {
+				doc.getFeatures().put("pageOffsets",
+						new ArrayList<Long>(known));
+			}
+			return;
+		}
+		List<Long> offsets = new ArrayList<Long>();
+		for (Annotation div : Utils.inDocumentOrder(doc.getAnnotations(
+				GateConstants.ORIGINAL_MARKUPS_ANNOT_SET_NAME).get("div"))) {
+			if ("page".equals(div.getFeatures().get("class"))) {
+				offsets.add(div.getStartNode().getOffset());
+			}
+		}
+		if (!offsets.isEmpty()) {
+			doc.getFeatures().put("pageOffsets", offsets);
+		}
+	}
+
+	/**
+	 * Second half of {@link #parseConverted(List)}: the JSON for a document
+	 * returned by {@link #annotate(List)}.
+	 */
+	public JSONObject assemble(Document doc) {
+		long start = System.nanoTime();
+		JSONObject parsedJSON = outputMapping.extract(doc);
+		metrics.recordSince("json.assemble", start);
+		return parsedJSON;
+	}
+
+	/**
+	 * Like {@link #assemble(Document)}, but the JSON is generated as it is
+	 * written, without building it in memory first. The document must not be
+	 * {@link #release(List) released} before then. {@code json.assemble}
+	 * then includes the time spent writing.
+	 */
+	public ResumeJson json(final Document doc) {
+		final ResumeJson json = outputMapping.json(doc);
+		return new ResumeJson() {
+			@Override
+			public void writeTo(JsonGenerator generator) throws IOException {
+				long start = System.nanoTime();
+				json.writeTo(generator);
+				metrics.recordSince("json.assemble", start);
+			}
+		};
+	}
+
+	/**
+	 * Run an already converted (html/txt) resume file through the parser.
+	 */
+	public JSONObject parse(File file) throws GateException, IOException {
+		return parseAll(Collections.singletonList(file)).get(file);
+	}
+
+	/**
+	 * Run a set of already converted resume files through the parser as a
+	 * single corpus.
+	 *
+	 * @return the parsed JSON for every file, in the order given
+	 */
+	public Map<File, JSONObject> parseAll(List<File> files)
+			throws GateException, IOException {
+		List<FeatureMap> documentParams = new ArrayList<FeatureMap>();
+		for (File file : files) {
+			URL u = file.toURI().toURL();
+			FeatureMap params = Factory.newFeatureMap();
+			params.put("sourceUrl", u);
+			params.put("preserveOriginalContent", preserveOriginalContent);
+			params.put("collectRepositioningInfo", preserveOriginalContent);
+			documentParams.add(params);
+		}
+		List<Document> documents = annotate(documentParams, files, null);
+		List<JSONObject> results;
+		try {
+			results = assembleAll(documents);
+		} finally {
+			release(documents);
+		}
+		Map<File, JSONObject> parsed = new LinkedHashMap<File, JSONObject>();
+		for (int i = 0; i < files.size(); i++) {
+			parsed.put(files.get(i), results.get(i));
+		}
+		return parsed;
+	}
+
+	/**
+	 * Run the documents through a pooled controller as one corpus. The
+	 * corpus is deleted afterwards; the documents are left alone.
+	 *
+	 * @param sources
+	 *            where each document came from, for the quarantine
+	 */
+	private void execute(List<Document> documents, List<File> sources)
+			throws GateException {
+		Corpus corpus = Factory.newCorpus("Annie corpus");
+		try {
+			corpus.addAll(documents);
+			execute(corpus, sources);
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	private void execute(Corpus corpus, List<File> sources)
+			throws GateException {
+		// tell the pipeline about the corpus and run it
+		Annie annie = checkOut();
+		AtomicBoolean timedOut = new AtomicBoolean();
+		try {
+			annie.setCorpus(corpus);
+			acquireCpu();
+			long start = System.nanoTime();
+			ScheduledFuture<?> alarm = scheduleInterrupt(annie, corpus.size(),
+					timedOut);
+			try {
+				annie.execute();
+				metrics.recordSince("annie.execute", start);
+			} catch (ExecutionInterruptedException e) {
+				if (!timedOut.get()) {
+					throw e;
+				}
+				if (sources.size() == 1) {
+					long elapsed = TimeUnit.NANOSECONDS.toMillis(System
+							.nanoTime() - start);
+					quarantine.add(sources.get(0), "annie", elapsed,
+							annie.getPrTimes());
+				}
+				throw new DocumentTimeoutException(sources
+						+ " took longer than " + documentTimeoutMillis
+						+ " ms per document to parse");
+			} finally {
+				if (alarm != null && !alarm.cancel(false)) {
+					// too late: the interrupt has been or is being delivered
+					timedOut.set(true);
+				}
+				cpuPermits.release();
+			}
+			for (Map.Entry<String, Long> pr : annie.getPrTimes().entrySet()) {
+				metrics.histogram("pr." + pr.getKey()).record(
+						pr.getValue() * 1000000L);
+			}
+		} finally {
+			// the controller must not keep the corpus, or its documents,
+			// alive
+			annie.setCorpus(null);
+			if (timedOut.get()) {
+				// the interrupt may land after the run finished, so recycle
+				// even if nothing was thrown
+				pool.recycle(annie);
+			} else {
+				pool.checkIn(annie);
+			}
+		}
+	}
+
+	/**
+	 * Interrupt the controller once the corpus is over its time budget.
+	 *
+	 * @return the pending interrupt, or null if there is no budget
+	 */
+	private ScheduledFuture<?> scheduleInterrupt(final Annie annie,
+			int documents, final AtomicBoolean timedOut) {
+		long timeout = documentTimeoutMillis;
+		if (timeout <= 0) {
+			return null;
+		}
+		return WATCHDOG.schedule(new Runnable() {
+			@Override
+			public void run() {
+				timedOut.set(true);
+				annie.interrupt();
+			}
+		}, timeout * documents, TimeUnit.MILLISECONDS);
+	}
+
+	private List<JSONObject> assembleAll(List<Document> documents) {
+		List<JSONObject> results = new ArrayList<JSONObject>();
+		Out.prln("Started parsing...");
+		for (Document doc : documents) {
+			results.add(assemble(doc));
+		}
+		Out.prln("Completed parsing...");
+		return results;
+	}
+
+	private Annie checkOut() throws GateException {
+		try {
+			return pool.checkOut();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GateException(
+					"Interrupted while waiting for a processing engine");
+		}
+	}
+
+	private void acquireCpu() throws GateException {
+		try {
+			cpuPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GateException("Interrupted while waiting for a core");
+		}
+	}
+
+	/**
+	 * Assemble the JSON for a document the pipeline has annotated, with the
+	 * default mapping.
+	 */
+	static JSONObject toJSON(Document doc) {
+		return OutputMapping.defaultMapping().extract(doc);
+	}
+}
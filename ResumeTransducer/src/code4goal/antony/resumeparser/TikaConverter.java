@@ -0,0 +1,741 @@
+package code4goal.antony.resumeparser;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.util.Splitter;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.PagedText;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MediaTypeRegistry;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.ToXMLContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Converts resumes to XHTML with Apache Tika, or PDF, DOC and DOCX
+ * resumes to plain text in {@link #setTextOnly(boolean) text-only} mode.
+ * The Tika configuration and
+ * parser registry are loaded once and shared: {@link AutoDetectParser} is
+ * stateless, so one converter can be used from any number of threads.
+ * <P>
+ * The format of a resume is detected from its content (magic bytes, or
+ * the entries of an OLE2 or ZIP container), not from its file name, so
+ * uploads with a wrong or missing extension are converted like any other.
+ * Each file is detected once; the parser reuses the result. Conversion
+ * times are recorded per format as {@code tika.<format>}, where the format
+ * is one of the keys of {@link #FORMATS}.
+ * <P>
+ * Extraction can be capped in characters and, for PDFs, in pages. Tika
+ * streams the document through the content handler, so once a cap is
+ * reached the parse is cut short and the text so far is used; neither the
+ * rest of the text nor the time to extract it is spent. Truncated
+ * conversions are also recorded as {@code tika.truncated}.
+ * <P>
+ * Long PDFs can be {@link #setPageRangeSize(int) split} into page ranges
+ * that are extracted in parallel and stitched back together in order.
+ * <P>
+ * In XHTML, Tika puts every page of a PDF in a {@code <div class="page">}.
+ * Text-only conversions of PDFs carry the offsets at which the pages start
+ * instead, see {@link ConvertedResume#getPageOffsets()}.
+ */
+public class TikaConverter {
+
+	/** Supported formats by media type; subtypes of these are included */
+	static final Map<MediaType, String> FORMATS = new LinkedHashMap<MediaType, String>();
+	static {
+		FORMATS.put(MediaType.application("pdf"), "pdf");
+		FORMATS.put(MediaType.application("msword"), "doc");
+		FORMATS.put(
+				MediaType
+						.application("vnd.openxmlformats-officedocument.wordprocessingml.document"),
+				"docx");
+		FORMATS.put(MediaType.text("html"), "html");
+		FORMATS.put(MediaType.application("xhtml+xml"), "html");
+		FORMATS.put(MediaType.application("rtf"), "rtf");
+		FORMATS.put(MediaType.TEXT_PLAIN, "txt");
+	}
+
+	/**
+	 * The type of a page object, {@code /Type /Page} with any whitespace
+	 * between, but not of the page tree ({@code /Pages})
+	 */
+	private static final byte[] TYPE_KEY = { '/', 'T', 'y', 'p', 'e' };
+	private static final byte[] PAGE_TYPE = { '/', 'P', 'a', 'g', 'e' };
+
+	private final Detector detector;
+
+	private final MediaTypeRegistry registry;
+
+	private final AutoDetectParser parser;
+
+	private final MetricsRegistry metrics;
+
+	private volatile boolean keepIntermediateFiles = false;
+
+	private volatile boolean textOnly = false;
+
+	private volatile int maxCharacters = -1;
+
+	private volatile int maxPages = -1;
+
+	private volatile int pageRangeSize = -1;
+
+	/** Extracts the page ranges of split PDFs, one range per core at a time */
+	private static final ExecutorService PAGE_RANGES = Executors
+			.newFixedThreadPool(ControllerPool.defaultSize(),
+					IoExecutors.daemonThreadFactory("pdf-pages"));
+
+	public TikaConverter(MetricsRegistry metrics) {
+		this(TikaConfig.getDefaultConfig(), metrics);
+	}
+
+	public TikaConverter(TikaConfig config, MetricsRegistry metrics) {
+		this.detector = config.getDetector();
+		this.registry = config.getMediaTypeRegistry();
+		this.parser = new AutoDetectParser(config);
+		// the type has already been detected by convert(), don't do it again
+		this.parser.setDetector(new Detector() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public MediaType detect(InputStream input, Metadata metadata)
+					throws IOException {
+				String type = metadata.get(Metadata.CONTENT_TYPE);
+				return type != null ? MediaType.parse(type) : detector.detect(
+						input, metadata);
+			}
+		});
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Whether the converted text is also written next to each input (as
+	 * {@code .html} or {@code .txt}), which helps when debugging the
+	 * grammars.
+	 */
+	public void setKeepIntermediateFiles(boolean keepIntermediateFiles) {
+		this.keepIntermediateFiles = keepIntermediateFiles;
+	}
+
+	/**
+	 * Whether PDF, DOC and DOCX resumes are converted to plain text instead
+	 * of XHTML. GATE then takes the text as it is instead of parsing the
+	 * markup, which is cheaper, but the grammars see the line breaks Tika
+	 * writes (one after every paragraph, list item, table row and line
+	 * break, and one per line of a PDF) rather than GATE's rendering of the
+	 * XHTML, which joins the lines of a paragraph and includes the title.
+	 * Off by default.
+	 */
+	public void setTextOnly(boolean textOnly) {
+		this.textOnly = textOnly;
+	}
+
+	public boolean isTextOnly() {
+		return textOnly;
+	}
+
+	/**
+	 * Stop extracting once a resume has yielded this many characters of
+	 * text (markup does not count), or -1 (the default) for no limit.
+	 */
+	public void setMaxCharacters(int maxCharacters) {
+		this.maxCharacters = maxCharacters;
+	}
+
+	public int getMaxCharacters() {
+		return maxCharacters;
+	}
+
+	/**
+	 * Stop extracting a PDF after this many pages, or -1 (the default) for
+	 * no limit.
+	 */
+	public void setMaxPages(int maxPages) {
+		this.maxPages = maxPages;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	/**
+	 * Split PDFs of more than {@code pageRangeSize} pages into ranges of
+	 * that many pages, extract the ranges in parallel and join their text in
+	 * page order, or -1 (the default) to extract every PDF in one go. Only
+	 * the extraction of the text is parallel; a PDF to split is still loaded
+	 * and split once, on the calling thread. Whether a PDF is long enough is
+	 * first judged from the page objects in its bytes, so short PDFs are not
+	 * loaded twice, except those that keep their page objects compressed.
+	 * The joined result has the same pages, and so the same
+	 * {@code <div class="page">} boundaries or page offsets, as Tika's, but
+	 * not the document outline or form fields Tika appends after the last
+	 * page. Not used with a {@link #setMaxCharacters(int) character limit}.
+	 */
+	public void setPageRangeSize(int pageRangeSize) {
+		this.pageRangeSize = pageRangeSize;
+	}
+
+	public int getPageRangeSize() {
+		return pageRangeSize;
+	}
+
+	/**
+	 * The settings that change what a conversion produces, for keys of
+	 * cached results.
+	 */
+	public String getFingerprint() {
+		return "textOnly=" + textOnly + ",maxCharacters=" + maxCharacters
+				+ ",maxPages=" + maxPages + ",pageRangeSize=" + pageRangeSize;
+	}
+
+	/**
+	 * The format of a stream, one of the values of {@link #FORMATS}, or null
+	 * if it is not supported. The stream is reset to where it was.
+	 */
+	String detectFormat(InputStream input, Metadata metadata)
+			throws IOException {
+		MediaType type = detector.detect(input, metadata).getBaseType();
+		metadata.set(Metadata.CONTENT_TYPE, type.toString());
+		for (; type != null; type = registry.getSupertype(type)) {
+			String format = FORMATS.get(type);
+			if (format != null) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Convert a resume, keeping the result in memory.
+	 *
+	 * @return the converted resume, or null if the input format is not
+	 *         supported
+	 */
+	public ConvertedResume convert(File input) throws IOException,
+			SAXException, TikaException {
+		long start = System.nanoTime();
+		Extraction extraction;
+		TikaInputStream stream = TikaInputStream.get(input);
+		try {
+			extraction = extract(stream);
+		} finally {
+			stream.close();
+		}
+		return finish(input, extraction, start);
+	}
+
+	/** What Tika made of one resume */
+	static class Extraction {
+		/** The detected media type */
+		String type;
+		/** One of the values of {@link #FORMATS}, or null if unsupported */
+		String format;
+		/** The converted text, and its type for GATE */
+		String content;
+		String mimeType;
+		/** Where the pages of a PDF start in text-only content, else null */
+		List<Long> pageOffsets;
+		/** Whether a limit cut the extraction short */
+		boolean truncated;
+	}
+
+	/**
+	 * Detect the format of a resume and, if it is supported, extract its
+	 * text. Nothing is recorded; see {@link #finish(File, Extraction, long)}.
+	 */
+	Extraction extract(TikaInputStream stream) throws IOException,
+			SAXException, TikaException {
+		Extraction extraction = new Extraction();
+		Metadata metadata = new Metadata();
+		String format = detectFormat(stream, metadata);
+		extraction.type = metadata.get(Metadata.CONTENT_TYPE);
+		extraction.format = format;
+		if (format == null) {
+			return extraction;
+		}
+		boolean toText = textOnly
+				&& (format.equals("pdf") | format.equals("doc") | format
+						.equals("docx"));
+		if (toText) {
+			extraction.mimeType = "text/plain";
+		} else if (format.equals("html") | format.equals("pdf")
+				| format.equals("doc") | format.equals("docx")) {
+			extraction.mimeType = "text/html";
+		} else {
+			extraction.mimeType = "text/plain";
+		}
+		if (format.equals("pdf") && pageRangeSize > 0 && maxCharacters < 0
+				&& extractPageRanges(stream, toText, extraction)) {
+			return extraction;
+		}
+
+		// the body handler's own default limit is 100k characters, so the
+		// limit is always ours
+		WriteOutContentHandler limited = toText ? new WriteOutContentHandler(
+				maxCharacters) : new WriteOutContentHandler(
+				new ToXMLContentHandler(), maxCharacters);
+		PageOffsetHandler offsets = new PageOffsetHandler(limited);
+		PageLimitHandler handler = new PageLimitHandler(
+				toText ? new BodyContentHandler(offsets) : limited, maxPages);
+		try {
+			parser.parse(stream, handler, metadata, new ParseContext());
+		} catch (SAXException e) {
+			if (!limited.isWriteLimitReached(e)
+					&& !PageLimitHandler.isPageLimitReached(e)) {
+				throw e;
+			}
+			extraction.truncated = true;
+		} catch (TikaException e) {
+			if (!limited.isWriteLimitReached(e)
+					&& !PageLimitHandler.isPageLimitReached(e)) {
+				throw e;
+			}
+			extraction.truncated = true;
+		}
+		extraction.content = handler.toString();
+		if (toText && format.equals("pdf")) {
+			extraction.pageOffsets = offsets.getOffsets();
+		}
+		return extraction;
+	}
+
+	/**
+	 * Extract a PDF of more than {@link #pageRangeSize} pages range by range
+	 * in parallel.
+	 *
+	 * @return false, having consumed nothing from {@code stream}, if the PDF
+	 *         is not split
+	 */
+	private boolean extractPageRanges(TikaInputStream stream,
+			final boolean toText, Extraction extraction) throws IOException,
+			SAXException, TikaException {
+		if (maxPages >= 0 && maxPages <= pageRangeSize) {
+			return false;
+		}
+		// too many when pages were replaced by incremental updates, none
+		// when the page objects are compressed, but never too few
+		int pageObjects = countPageObjects(stream.getFile());
+		if (pageObjects > 0 && pageObjects <= pageRangeSize) {
+			return false;
+		}
+		List<byte[]> ranges = new ArrayList<byte[]>();
+		int pages;
+		int totalPages;
+		PDDocument document = PDDocument.load(stream.getFile());
+		try {
+			if (document.isEncrypted()) {
+				return false;
+			}
+			totalPages = document.getNumberOfPages();
+			pages = maxPages >= 0 ? Math.min(maxPages, totalPages)
+					: totalPages;
+			if (pages <= pageRangeSize) {
+				return false;
+			}
+			Splitter splitter = new Splitter();
+			splitter.setSplitAtPage(pageRangeSize);
+			splitter.setEndPage(pages);
+			for (PDDocument range : splitter.split(document)) {
+				try {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					range.save(bytes);
+					ranges.add(bytes.toByteArray());
+				} finally {
+					range.close();
+				}
+			}
+		} catch (COSVisitorException e) {
+			throw new TikaException("Could not split " + stream.getFile(), e);
+		} finally {
+			document.close();
+		}
+		extraction.truncated = pages < totalPages;
+
+		List<Future<PageRecorder>> parts = new ArrayList<Future<PageRecorder>>();
+		for (final byte[] range : ranges) {
+			parts.add(PAGE_RANGES.submit(new Callable<PageRecorder>() {
+				@Override
+				public PageRecorder call() throws Exception {
+					return extractPageRange(range);
+				}
+			}));
+		}
+		// the head is written from the metadata of the first range, with
+		// the page count of the whole PDF, and the body from the pages of
+		// every range in order
+		ToXMLContentHandler xml = new ToXMLContentHandler();
+		WriteOutContentHandler text = new WriteOutContentHandler(-1);
+		PageOffsetHandler offsets = new PageOffsetHandler(text);
+		ContentHandler body = toText ? new BodyContentHandler(offsets) : xml;
+		try {
+			XHTMLContentHandler xhtml = null;
+			for (Future<PageRecorder> part : parts) {
+				PageRecorder recorder = part.get();
+				if (xhtml == null) {
+					recorder.metadata.set(PagedText.N_PAGES, totalPages);
+					xhtml = new XHTMLContentHandler(body, recorder.metadata);
+					xhtml.startDocument();
+					// writes the head and opens the body
+					xhtml.characters(new char[0], 0, 0);
+				}
+				recorder.replay(body);
+			}
+			xhtml.endDocument();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TikaException("Interrupted while extracting "
+					+ stream.getFile());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			} else if (cause instanceof TikaException) {
+				throw (TikaException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new TikaException("Could not extract " + stream.getFile(),
+					cause);
+		} finally {
+			for (Future<PageRecorder> part : parts) {
+				part.cancel(true);
+			}
+		}
+		if (toText) {
+			extraction.content = text.toString();
+			extraction.pageOffsets = offsets.getOffsets();
+		} else {
+			extraction.content = xml.toString();
+		}
+		return true;
+	}
+
+	/**
+	 * Number of page objects in the bytes of a PDF: a cheap estimate of its
+	 * page count, without loading it. The file is scanned as a stream, so
+	 * none of it is held in memory.
+	 */
+	private static int countPageObjects(File pdf) throws IOException {
+		int count = 0;
+		// bytes of "/Type" matched, then of "/Page" after it
+		int type = 0;
+		int page = -1;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(
+				pdf), 64 * 1024)) {
+			int b;
+			while ((b = in.read()) != -1) {
+				if (page == PAGE_TYPE.length) {
+					if (!isLetter(b)) {
+						count++;
+					}
+					page = -1;
+				}
+				if (page >= 0) {
+					if (page == 0 && isWhitespace(b)) {
+						continue;
+					}
+					if (b == PAGE_TYPE[page]) {
+						page++;
+						continue;
+					}
+					// "/" then not "P" may still start "/Type"
+					type = page == 1 && b == TYPE_KEY[1] ? 2 : 0;
+					page = -1;
+					if (type > 0) {
+						continue;
+					}
+				}
+				if (b == TYPE_KEY[type]) {
+					type++;
+					if (type == TYPE_KEY.length) {
+						type = 0;
+						page = 0;
+					}
+				} else {
+					type = b == TYPE_KEY[0] ? 1 : 0;
+				}
+			}
+		}
+		if (page == PAGE_TYPE.length) {
+			count++;
+		}
+		return count;
+	}
+
+	private static boolean isLetter(int b) {
+		return b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z';
+	}
+
+	/** The whitespace of {@code \s} in a regular expression */
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f'
+				|| b == '\r';
+	}
+
+	/** The pages and metadata of one range of a split PDF */
+	private PageRecorder extractPageRange(byte[] range) throws IOException,
+			SAXException, TikaException {
+		PageRecorder recorder = new PageRecorder();
+		recorder.metadata.set(Metadata.CONTENT_TYPE, "application/pdf");
+		TikaInputStream stream = TikaInputStream.get(range);
+		try {
+			parser.parse(stream, recorder, recorder.metadata,
+					new ParseContext());
+		} finally {
+			stream.close();
+		}
+		return recorder;
+	}
+
+	/**
+	 * Record an extraction that started at {@code start}, wherever it ran,
+	 * and write the intermediate file if asked to.
+	 *
+	 * @return the converted resume, or null if the input format is not
+	 *         supported
+	 */
+	ConvertedResume finish(File input, Extraction extraction, long start)
+			throws IOException {
+		String file = input.getPath();
+		if (extraction.format == null) {
+			System.out.println("Input format of the file " + file + " ("
+					+ extraction.type + ") is not supported.");
+			return null;
+		}
+		metrics.recordSince("tika." + extraction.format, start);
+		if (extraction.truncated) {
+			metrics.recordSince("tika.truncated", start);
+		}
+
+		if (keepIntermediateFiles) {
+			String outputFileFormat = extraction.mimeType.equals("text/html") ? ".html"
+					: ".txt";
+			String OUTPUT_FILE_NAME = FilenameUtils.removeExtension(file)
+					+ outputFileFormat;
+			FileWriter htmlFileWriter = new FileWriter(OUTPUT_FILE_NAME);
+			htmlFileWriter.write(extraction.content);
+			htmlFileWriter.flush();
+			htmlFileWriter.close();
+		}
+		return new ConvertedResume(input, extraction.content,
+				extraction.mimeType, extraction.pageOffsets);
+	}
+
+	/** Whether an element is a PDF page, as Tika writes them */
+	private static boolean isPage(String localName, Attributes atts) {
+		return "div".equals(localName) && "page".equals(atts.getValue("class"));
+	}
+
+	/**
+	 * Records where every PDF page starts in the text of the handler it
+	 * decorates, which must write out the characters and whitespace it is
+	 * given and nothing else.
+	 */
+	private static class PageOffsetHandler extends ContentHandlerDecorator {
+
+		private final List<Long> offsets = new ArrayList<Long>();
+		private long length;
+
+		PageOffsetHandler(ContentHandler handler) {
+			super(handler);
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String name,
+				Attributes atts) throws SAXException {
+			if (isPage(localName, atts)) {
+				offsets.add(length);
+			}
+			super.startElement(uri, localName, name, atts);
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length)
+				throws SAXException {
+			super.characters(ch, start, length);
+			this.length += length;
+		}
+
+		@Override
+		public void ignorableWhitespace(char[] ch, int start, int length)
+				throws SAXException {
+			super.ignorableWhitespace(ch, start, length);
+			this.length += length;
+		}
+
+		List<Long> getOffsets() {
+			return Collections.unmodifiableList(offsets);
+		}
+	}
+
+	/**
+	 * Records the pages of a PDF, i.e. the {@code <div class="page">}
+	 * elements and the line break Tika writes after each, to be replayed
+	 * into another document. The rest, such as the head or the outline after
+	 * the last page, is left out.
+	 */
+	private static class PageRecorder extends DefaultHandler {
+
+		/** The metadata of the PDF, once parsed */
+		final Metadata metadata = new Metadata();
+
+		private final List<Event> events = new ArrayList<Event>();
+
+		/** Depth in the current page, 0 outside of the pages */
+		private int depth;
+
+		/** Whether nothing but whitespace came since the end of a page */
+		private boolean afterPage;
+
+		@Override
+		public void startElement(final String uri, final String localName,
+				final String name, Attributes atts) {
+			if (depth == 0 && !isPage(localName, atts)) {
+				afterPage = false;
+				return;
+			}
+			depth++;
+			final Attributes copy = new AttributesImpl(atts);
+			events.add(new Event() {
+				@Override
+				void replay(ContentHandler handler) throws SAXException {
+					handler.startElement(uri, localName, name, copy);
+				}
+			});
+		}
+
+		@Override
+		public void endElement(final String uri, final String localName,
+				final String name) {
+			if (depth == 0) {
+				afterPage = false;
+				return;
+			}
+			afterPage = --depth == 0;
+			events.add(new Event() {
+				@Override
+				void replay(ContentHandler handler) throws SAXException {
+					handler.endElement(uri, localName, name);
+				}
+			});
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (depth == 0) {
+				afterPage = false;
+				return;
+			}
+			final char[] copy = Arrays.copyOfRange(ch, start, start + length);
+			events.add(new Event() {
+				@Override
+				void replay(ContentHandler handler) throws SAXException {
+					handler.characters(copy, 0, copy.length);
+				}
+			});
+		}
+
+		@Override
+		public void ignorableWhitespace(char[] ch, int start, int length) {
+			if (depth == 0 && !afterPage) {
+				return;
+			}
+			final char[] copy = Arrays.copyOfRange(ch, start, start + length);
+			events.add(new Event() {
+				@Override
+				void replay(ContentHandler handler) throws SAXException {
+					handler.ignorableWhitespace(copy, 0, copy.length);
+				}
+			});
+		}
+
+		/** Send the recorded pages to a handler, in the body of a document */
+		void replay(ContentHandler handler) throws SAXException {
+			for (Event event : events) {
+				event.replay(handler);
+			}
+		}
+
+		private abstract static class Event {
+			abstract void replay(ContentHandler handler) throws SAXException;
+		}
+	}
+
+	/**
+	 * Ends the parse at the start of the first PDF page over the limit;
+	 * Tika puts every page of a PDF in a {@code <div class="page">}.
+	 */
+	private static class PageLimitHandler extends ContentHandlerDecorator {
+
+		private final int maxPages;
+		private int pages;
+
+		PageLimitHandler(ContentHandler handler, int maxPages) {
+			super(handler);
+			this.maxPages = maxPages;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String name,
+				Attributes atts) throws SAXException {
+			if (maxPages >= 0 && isPage(localName, atts) && ++pages > maxPages) {
+				throw new PageLimitReachedException();
+			}
+			super.startElement(uri, localName, name, atts);
+		}
+
+		static boolean isPageLimitReached(Throwable t) {
+			for (; t != null; t = t.getCause()) {
+				if (t instanceof PageLimitReachedException) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class PageLimitReachedException extends SAXException {
+		PageLimitReachedException() {
+			super("Page limit reached");
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package code4goal.antony.resumeparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.tika.io.TikaInputStream;
+
+/**
+ * The child JVM side of a {@link TikaWorkerPool}: converts the resumes
+ * sent to its standard input, one at a time, and answers on its standard
+ * output until standard input is closed. Anything the parsers print goes
+ * to standard error.
+ * <P>
+ * The protocol is
+ *
+ * <PRE>
+ * worker  := READY (request reply)*
+ * request := boolean textOnly, int maxCharacters, int maxPages, int pageRangeSize,
+ *            int length, byte*
+ * reply   := OK string type, string format, string mimeType, boolean truncated, string content,
+ *            int pages, long pageOffset*
+ *          | UNSUPPORTED string type
+ *          | FAILED string error
+ *          | FATAL string error
+ * </PRE>
+ *
+ * where {@code READY} is sent once Tika is loaded and a string is its
+ * UTF-8 length as an int followed by the bytes, and {@code pages} is -1
+ * when there are no page offsets. After a {@code FATAL}
+ * reply, sent for an {@link Error} such as {@link OutOfMemoryError}, the
+ * worker exits: its heap may be in any state.
+ */
+public class TikaWorker {
+
+	/** Greeting and reply statuses */
+	static final byte READY = 'R';
+	static final byte OK = 0;
+	static final byte UNSUPPORTED = 1;
+	static final byte FAILED = 2;
+	static final byte FATAL = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public static void main(String[] args) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(FileDescriptor.out)));
+		// keep whatever the parsers print out of the replies
+		System.setOut(System.err);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				System.in));
+		TikaConverter converter = new TikaConverter(new MetricsRegistry());
+		out.writeByte(READY);
+		out.flush();
+		while (true) {
+			try {
+				converter.setTextOnly(in.readBoolean());
+			} catch (EOFException e) {
+				return;
+			}
+			converter.setMaxCharacters(in.readInt());
+			converter.setMaxPages(in.readInt());
+			converter.setPageRangeSize(in.readInt());
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			try {
+				TikaConverter.Extraction extraction;
+				// closing the stream deletes any copy Tika spooled to disk
+				try (TikaInputStream stream = TikaInputStream.get(bytes)) {
+					extraction = converter.extract(stream);
+				}
+				bytes = null;
+				if (extraction.format == null) {
+					out.writeByte(UNSUPPORTED);
+					writeString(out, extraction.type);
+				} else {
+					out.writeByte(OK);
+					writeString(out, extraction.type);
+					writeString(out, extraction.format);
+					writeString(out, extraction.mimeType);
+					out.writeBoolean(extraction.truncated);
+					writeString(out, extraction.content);
+					if (extraction.pageOffsets == null) {
+						out.writeInt(-1);
+					} else {
+						out.writeInt(extraction.pageOffsets.size());
+						for (long offset : extraction.pageOffsets) {
+							out.writeLong(offset);
+						}
+					}
+				}
+			} catch (Exception e) {
+				out.writeByte(FAILED);
+				writeString(out, e.toString());
+			} catch (Error e) {
+				bytes = null;
+				out.writeByte(FATAL);
+				writeString(out, e.toString());
+				out.flush();
+				System.exit(1);
+			}
+			out.flush();
+		}
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+}
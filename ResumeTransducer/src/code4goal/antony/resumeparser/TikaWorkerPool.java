@@ -0,0 +1,344 @@
+package code4goal.antony.resumeparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tika.exception.TikaException;
+
+/**
+ * Runs Apache Tika in child JVMs ({@link TikaWorker}), so a parser that
+ * runs out of memory, crashes or spins on a crafted file takes down a
+ * worker rather than this JVM with its loaded GATE applications and every
+ * resume in flight. Each worker converts one resume at a time: the bytes
+ * go to it over its standard input and the text comes back over its
+ * standard output.
+ * <P>
+ * A worker that dies, reports an {@link Error} or runs over the time
+ * budget of a conversion is killed and a fresh one is started in its
+ * place. The conversion settings, metrics and intermediate files are
+ * those of the {@link TikaConverter} given, as if it had done the work.
+ * <P>
+ * Tika may spool a resume to a temporary file, which holds personal data.
+ * Every worker gets a temporary directory of its own, which is checked
+ * after every conversion: anything left there is deleted and counted (see
+ * {@link #getLeftoverTempFiles()}), and the directory goes with the worker.
+ */
+public class TikaWorkerPool implements Closeable {
+
+	/** Kills workers that are over their time budget */
+	private static final ScheduledExecutorService WATCHDOG = new ScheduledThreadPoolExecutor(
+			1, IoExecutors.daemonThreadFactory("tika-worker-watchdog"));
+
+	/** Time a worker gets to load Tika and say it is ready */
+	private static final long STARTUP_TIMEOUT_MILLIS = 60 * 1000;
+
+	/** Time a stopped worker gets to exit before it is killed */
+	private static final long STOP_TIMEOUT_MILLIS = 5 * 1000;
+
+	private final TikaConverter converter;
+
+	private final String maxHeap;
+
+	private final List<Worker> workers = new ArrayList<Worker>();
+
+	/** Workers that are not converting anything */
+	private final BlockingQueue<Worker> idle;
+
+	private final AtomicInteger leftoverTempFiles = new AtomicInteger();
+
+	/**
+	 * Start the workers.
+	 *
+	 * @param converter
+	 *            the settings to convert with and where to record the results
+	 * @param size
+	 *            number of workers, i.e. of conversions at once
+	 * @param maxHeap
+	 *            heap limit of each worker in {@code -Xmx} syntax, e.g.
+	 *            {@code 512m}
+	 */
+	public TikaWorkerPool(TikaConverter converter, int size, String maxHeap) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: "
+					+ size);
+		}
+		this.converter = converter;
+		this.maxHeap = maxHeap;
+		idle = new ArrayBlockingQueue<Worker>(size);
+		for (int i = 0; i < size; i++) {
+			Worker worker = new Worker();
+			worker.restart();
+			workers.add(worker);
+			idle.add(worker);
+		}
+	}
+
+	public int size() {
+		return workers.size();
+	}
+
+	/**
+	 * Number of temporary files that workers left behind after answering,
+	 * and that were deleted for them; anything but 0 means a leak.
+	 */
+	public int getLeftoverTempFiles() {
+		return leftoverTempFiles.get();
+	}
+
+	/**
+	 * Convert a resume in a worker, waiting for one if all are busy.
+	 *
+	 * @param timeoutMillis
+	 *            time the worker gets for the conversion, 0 for no limit
+	 * @return the converted resume, or null if the input format is not
+	 *         supported
+	 * @throws TimeoutException
+	 *             if the worker ran out of time; it has been replaced
+	 * @throws TikaException
+	 *             if the conversion failed, or the worker died
+	 */
+	public ConvertedResume convert(File input, long timeoutMillis)
+			throws IOException, TikaException, InterruptedException,
+			TimeoutException {
+		final Worker worker = idle.take();
+		// read only once a worker is free, so waiting callers hold no copy
+		byte[] bytes = null;
+		try {
+			bytes = FileUtils.readFileToByteArray(input);
+		} finally {
+			if (bytes == null) {
+				idle.add(worker);
+			}
+		}
+		boolean healthy = false;
+		ScheduledFuture<?> kill = null;
+		try {
+			if (worker.process == null) {
+				worker.start();
+			}
+			// starting the worker does not count against the time budget
+			try {
+				worker.awaitReady();
+			} catch (IOException e) {
+				throw new TikaException("A Tika worker could not be started",
+						e);
+			}
+			long start = System.nanoTime();
+			if (timeoutMillis > 0) {
+				final Process process = worker.process;
+				kill = WATCHDOG.schedule(new Runnable() {
+					@Override
+					public void run() {
+						// a JVM thrashing in GC may not get round to a SIGTERM
+						process.destroyForcibly();
+					}
+				}, timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+			TikaConverter.Extraction extraction;
+			try {
+				worker.out.writeBoolean(converter.isTextOnly());
+				worker.out.writeInt(converter.getMaxCharacters());
+				worker.out.writeInt(converter.getMaxPages());
+				worker.out.writeInt(converter.getPageRangeSize());
+				worker.out.writeInt(bytes.length);
+				worker.out.write(bytes);
+				worker.out.flush();
+				extraction = read(worker.in);
+			} catch (IOException e) {
+				if (kill != null && !kill.cancel(false)) {
+					throw new TimeoutException(input + " took longer than "
+							+ timeoutMillis + " ms to convert");
+				}
+				throw new TikaException("The Tika worker converting " + input
+						+ " died", e);
+			}
+			healthy = true;
+			return converter.finish(input, extraction, start);
+		} catch (TikaWorkerException e) {
+			healthy = !e.fatal;
+			throw new TikaException("Tika failed on " + input + " in a worker: "
+					+ e.getMessage());
+		} finally {
+			// a worker killed just after it answered is replaced all the same
+			if (kill != null && !kill.cancel(false)) {
+				healthy = false;
+			}
+			if (!healthy) {
+				worker.restart();
+			} else {
+				worker.cleanTempDir();
+			}
+			idle.add(worker);
+		}
+	}
+
+	/** Read a reply to a request */
+	private static TikaConverter.Extraction read(DataInputStream in)
+			throws IOException, TikaWorkerException {
+		byte status = in.readByte();
+		if (status == TikaWorker.FAILED || status == TikaWorker.FATAL) {
+			throw new TikaWorkerException(TikaWorker.readString(in),
+					status == TikaWorker.FATAL);
+		}
+		TikaConverter.Extraction extraction = new TikaConverter.Extraction();
+		extraction.type = TikaWorker.readString(in);
+		if (status == TikaWorker.OK) {
+			extraction.format = TikaWorker.readString(in);
+			extraction.mimeType = TikaWorker.readString(in);
+			extraction.truncated = in.readBoolean();
+			extraction.content = TikaWorker.readString(in);
+			int pages = in.readInt();
+			if (pages >= 0) {
+				extraction.pageOffsets = new ArrayList<Long>(pages);
+				for (int i = 0; i < pages; i++) {
+					extraction.pageOffsets.add(in.readLong());
+				}
+			}
+		}
+		return extraction;
+	}
+
+	/** Stop all workers; conversions still running fail. */
+	@Override
+	public void close() {
+		for (Worker worker : workers) {
+			worker.stop();
+		}
+	}
+
+	/** An error reported by a worker */
+	@SuppressWarnings("serial")
+	private static class TikaWorkerException extends Exception {
+		/** Whether the worker exited after reporting it */
+		final boolean fatal;
+
+		TikaWorkerException(String message, boolean fatal) {
+			super(message);
+			this.fatal = fatal;
+		}
+	}
+
+	/** One child JVM, or none after it could not be (re)started */
+	private class Worker {
+		volatile Process process;
+		/** The process's java.io.tmpdir */
+		File tempDir;
+		DataOutputStream out;
+		DataInputStream in;
+		/** Whether the process has said it is ready */
+		boolean ready;
+
+		void start() throws IOException {
+			tempDir = Files.createTempDirectory("tika-worker").toFile();
+			// emptied after every conversion, so this can remove it
+			tempDir.deleteOnExit();
+			ProcessBuilder builder = new ProcessBuilder(Arrays.asList(
+					new File(System.getProperty("java.home"), "bin/java")
+							.getPath(), "-Xmx" + maxHeap,
+					"-Djava.io.tmpdir=" + tempDir.getPath(), "-cp",
+					System.getProperty("java.class.path"),
+					TikaWorker.class.getName()));
+			builder.redirectError(Redirect.INHERIT);
+			try {
+				process = builder.start();
+			} catch (IOException e) {
+				FileUtils.deleteQuietly(tempDir);
+				throw e;
+			}
+			out = new DataOutputStream(new BufferedOutputStream(
+					process.getOutputStream(), 64 * 1024));
+			in = new DataInputStream(new BufferedInputStream(
+					process.getInputStream(), 64 * 1024));
+			ready = false;
+		}
+
+		/**
+		 * Wait for the greeting, killing the process if it does not come
+		 * within {@link #STARTUP_TIMEOUT_MILLIS}
+		 */
+		void awaitReady() throws IOException {
+			if (!ready) {
+				final Process starting = process;
+				ScheduledFuture<?> kill = WATCHDOG.schedule(new Runnable() {
+					@Override
+					public void run() {
+						starting.destroyForcibly();
+					}
+				}, STARTUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				try {
+					if (in.readByte() != TikaWorker.READY) {
+						throw new IOException(
+								"Unexpected greeting from a Tika worker");
+					}
+				} finally {
+					if (!kill.cancel(false)) {
+						stop();
+						throw new IOException("A Tika worker took longer than "
+								+ STARTUP_TIMEOUT_MILLIS + " ms to start");
+					}
+				}
+				ready = true;
+			}
+		}
+
+		/** Replace the process; if that fails, try again on next use */
+		void restart() {
+			stop();
+			try {
+				start();
+			} catch (IOException e) {
+				System.err.println("Could not start a Tika worker: " + e);
+			}
+		}
+
+		/** Delete and count what the last conversion left behind */
+		void cleanTempDir() {
+			File[] files = tempDir.listFiles();
+			if (files != null && files.length > 0) {
+				leftoverTempFiles.addAndGet(files.length);
+				System.err.println("A Tika worker left " + files.length
+						+ " temporary files behind; deleting them");
+				for (File file : files) {
+					FileUtils.deleteQuietly(file);
+				}
+			}
+		}
+
+		void stop() {
+			Process old = process;
+			process = null;
+			if (old != null) {
+				old.destroy();
+				try {
+					// a killed worker cannot clean up after itself
+					if (!old.waitFor(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						old.destroyForcibly().waitFor(STOP_TIMEOUT_MILLIS,
+								TimeUnit.MILLISECONDS);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				FileUtils.deleteQuietly(tempDir);
+			}
+		}
+	}
+}